@@ -0,0 +1,78 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.entity.CircuitStop;
+import com.tarikma.app.entity.Place;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times {@link ItineraryPlanner#plan} on synthetic cities of 50, 500 and 5,000 candidate places,
+ * a tenth of them restaurants and a few hotels, scattered over roughly 15 km.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItineraryPlannerBenchmark {
+
+    private static final String[] SIGHT_CATEGORIES = {
+            "MUSEUM", "HISTORIC", "LANDMARK", "RELIGIOUS", "PARK", "NATURE", "SHOPPING", "MARKET"
+    };
+    private static final List<String> INTERESTS = List.of("CULTURE", "FOOD");
+
+    @Param({"50", "500", "5000"})
+    private int places;
+
+    @Param({"3"})
+    private int days;
+
+    private List<Place> candidates;
+
+    @Setup(Level.Trial)
+    public void createCity() {
+        // Fixed seed so every run plans the same city
+        Random random = new Random(42);
+        candidates = new ArrayList<>(places);
+        for (int i = 0; i < places; i++) {
+            String category;
+            if (i % 10 == 0) {
+                category = "RESTAURANT";
+            } else if (i % 40 == 1) {
+                category = "HOTEL";
+            } else {
+                category = SIGHT_CATEGORIES[random.nextInt(SIGHT_CATEGORIES.length)];
+            }
+
+            Place p = new Place();
+            ReflectionTestUtils.setField(p, "id", (long) i + 1);
+            p.setName("Place " + i);
+            p.setCategory(category);
+            p.setLatitude(31.63 + (random.nextDouble() - 0.5) * 0.14);
+            p.setLongitude(-7.99 + (random.nextDouble() - 0.5) * 0.16);
+            candidates.add(p);
+        }
+    }
+
+    @Benchmark
+    public List<CircuitStop> plan() {
+        return ItineraryPlanner.plan(candidates, days, INTERESTS);
+    }
+}
@@ -1,6 +1,8 @@
 package com.tarikma.app.config;
 
+import com.tarikma.app.dto.CursorPage;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -24,6 +26,7 @@ public class CorsConfig implements WebMvcConfigurer {
                 .allowedOriginPatterns("*")
                 .allowedMethods("*")
                 .allowedHeaders("*")
+                .exposedHeaders(CursorPage.NEXT_CURSOR_HEADER, HttpHeaders.CONTENT_DISPOSITION)
                 .allowCredentials(true)
                 .maxAge(3600);
 
@@ -1,8 +1,10 @@
 package com.tarikma.app.config;
 
+import com.tarikma.app.dto.CursorPage;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -101,6 +103,8 @@ public class SecurityConfig {
         config.addAllowedOriginPattern("*");
         config.addAllowedMethod("*");
         config.addAllowedHeader("*");
+        config.addExposedHeader(CursorPage.NEXT_CURSOR_HEADER);
+        config.addExposedHeader(HttpHeaders.CONTENT_DISPOSITION);
         config.setAllowCredentials(true);
         config.setMaxAge(3600L);
 
@@ -2,6 +2,7 @@ package com.tarikma.app.controllers;
 
 import com.tarikma.app.dto.admin.*;
 import com.tarikma.app.service.AdminService;
+import com.tarikma.app.service.TourCatalogCache;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -13,9 +14,11 @@ import java.util.List;
 public class AdminController {
 
     private final AdminService adminService;
+    private final TourCatalogCache tourCatalogCache;
 
-    public AdminController(AdminService adminService) {
+    public AdminController(AdminService adminService, TourCatalogCache tourCatalogCache) {
         this.adminService = adminService;
+        this.tourCatalogCache = tourCatalogCache;
     }
 
     // ── Users ──────────────────────────────────────────────────
@@ -179,4 +182,11 @@ public class AdminController {
         adminService.deleteRole(id);
         return ResponseEntity.noContent().build();
     }
+
+    // ── Caches ─────────────────────────────────────────────────
+
+    @GetMapping("/caches/tour-catalog")
+    public ResponseEntity<CacheStatsResponse> getTourCatalogCacheStats() {
+        return ResponseEntity.ok(tourCatalogCache.stats());
+    }
 }
@@ -1,5 +1,6 @@
 package com.tarikma.app.controllers;
 
+import com.tarikma.app.dto.CursorPage;
 import com.tarikma.app.dto.tour.BookingResponse;
 import com.tarikma.app.service.BookingService;
 import org.springframework.http.ResponseEntity;
@@ -35,9 +36,17 @@ public class BookingController {
 
     @GetMapping("/mine")
     public ResponseEntity<List<BookingResponse>> getMyBookings(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
             @AuthenticationPrincipal Jwt jwt
     ) {
-        return ResponseEntity.ok(bookingService.getMyBookings(jwt.getSubject()));
+        CursorPage<BookingResponse> page = bookingService.getMyBookings(jwt.getSubject(), cursor, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
     }
 
     @GetMapping("/by-checkout")
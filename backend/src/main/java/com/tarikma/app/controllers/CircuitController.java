@@ -1,5 +1,6 @@
 package com.tarikma.app.controllers;
 
+import com.tarikma.app.dto.CursorPage;
 import com.tarikma.app.dto.circuit.*;
 import com.tarikma.app.service.CircuitService;
 import jakarta.validation.Valid;
@@ -23,9 +24,18 @@ public class CircuitController {
     @GetMapping
     public ResponseEntity<List<CircuitSummaryResponse>> listMyCircuits(
             @AuthenticationPrincipal Jwt jwt,
-            @RequestParam(required = false) Long cityId
+            @RequestParam(required = false) Long cityId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
     ) {
-        return ResponseEntity.ok(circuitService.listMyCircuits(jwt.getSubject(), cityId));
+        CursorPage<CircuitSummaryResponse> page =
+                circuitService.listMyCircuits(jwt.getSubject(), cityId, cursor, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
     }
 
     @PostMapping
@@ -79,6 +89,15 @@ public class CircuitController {
         return ResponseEntity.ok(circuitService.addStop(id, request, jwt.getSubject()));
     }
 
+    @PostMapping("/{id}/stops/batch")
+    public ResponseEntity<CircuitResponse> applyStopOperations(
+            @PathVariable Long id,
+            @Valid @RequestBody CircuitStopBatchRequest request,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        return ResponseEntity.ok(circuitService.applyStopOperations(id, request, jwt.getSubject()));
+    }
+
     @PutMapping("/{id}/stops/{stopId}")
     public ResponseEntity<CircuitResponse> updateStop(
             @PathVariable Long id,
@@ -115,6 +134,30 @@ public class CircuitController {
         return ResponseEntity.ok(circuitService.generateCircuitWithAi(request, jwt.getSubject()));
     }
 
+    @PostMapping("/plan")
+    public ResponseEntity<CircuitResponse> planCircuit(
+            @Valid @RequestBody AiGenerateCircuitRequest request,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        return ResponseEntity.ok(circuitService.planCircuit(request, jwt.getSubject()));
+    }
+
+    @PostMapping("/{id}/routes/compute")
+    public ResponseEntity<CircuitResponse> computeRoutes(
+            @PathVariable Long id,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        return ResponseEntity.ok(circuitService.computeRoutes(id, jwt.getSubject()));
+    }
+
+    @PostMapping("/{id}/optimize")
+    public ResponseEntity<CircuitResponse> optimizeStops(
+            @PathVariable Long id,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        return ResponseEntity.ok(circuitService.optimizeStopOrder(id, jwt.getSubject()));
+    }
+
     @PostMapping("/{id}/ai-reorder")
     public ResponseEntity<CircuitResponse> aiReorderStops(
             @PathVariable Long id,
@@ -1,15 +1,24 @@
 package com.tarikma.app.controllers;
 
+import com.tarikma.app.dto.guide.BookingExportFormat;
 import com.tarikma.app.dto.guide.GuideBookingResponse;
+import com.tarikma.app.dto.guide.GuideDailyStatResponse;
 import com.tarikma.app.dto.guide.GuideDashboardSummary;
 import com.tarikma.app.service.GuideDashboardService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -27,8 +36,38 @@ public class GuideDashboardController {
         return ResponseEntity.ok(guideDashboardService.getGuideSummary(jwt.getSubject()));
     }
 
+    @GetMapping("/stats/daily")
+    public ResponseEntity<List<GuideDailyStatResponse>> getDailyStats(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long circuitId,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        return ResponseEntity.ok(guideDashboardService.getDailyStats(jwt.getSubject(), from, to, circuitId));
+    }
+
     @GetMapping("/bookings")
     public ResponseEntity<List<GuideBookingResponse>> getBookings(@AuthenticationPrincipal Jwt jwt) {
         return ResponseEntity.ok(guideDashboardService.getGuideBookings(jwt.getSubject()));
     }
+
+    /**
+     * Streams every booking on the guide's circuits as CSV (default) or NDJSON, newest first.
+     */
+    @GetMapping("/bookings/export")
+    public ResponseEntity<StreamingResponseBody> exportBookings(
+            @RequestParam(required = false) String format,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        BookingExportFormat exportFormat = guideDashboardService.parseExportFormat(format);
+        Long guideId = guideDashboardService.getGuideId(jwt.getSubject());
+        String filename = "bookings-" + LocalDate.now() + "." + exportFormat.getExtension();
+
+        StreamingResponseBody body = out -> guideDashboardService.exportGuideBookings(guideId, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
 }
@@ -1,6 +1,6 @@
 package com.tarikma.app.controllers;
 
-import com.tarikma.app.service.BookingService;
+import com.tarikma.app.service.StripeWebhookService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -8,10 +8,10 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api/webhooks")
 public class StripeWebhookController {
 
-    private final BookingService bookingService;
+    private final StripeWebhookService stripeWebhookService;
 
-    public StripeWebhookController(BookingService bookingService) {
-        this.bookingService = bookingService;
+    public StripeWebhookController(StripeWebhookService stripeWebhookService) {
+        this.stripeWebhookService = stripeWebhookService;
     }
 
     @PostMapping("/stripe")
@@ -19,7 +19,8 @@ public class StripeWebhookController {
             @RequestBody String payload,
             @RequestHeader("Stripe-Signature") String sigHeader
     ) {
-        bookingService.handleWebhook(payload, sigHeader);
+        // Stored and acknowledged right away; StripeWebhookWorker applies it
+        stripeWebhookService.ingest(payload, sigHeader);
         return ResponseEntity.ok("ok");
     }
 }
@@ -1,5 +1,6 @@
 package com.tarikma.app.controllers;
 
+import com.tarikma.app.dto.CursorPage;
 import com.tarikma.app.dto.tour.TourDetailResponse;
 import com.tarikma.app.dto.tour.TourSummaryResponse;
 import com.tarikma.app.service.TourService;
@@ -8,6 +9,8 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 
 @RestController
@@ -22,9 +25,23 @@ public class TourController {
 
     @GetMapping
     public ResponseEntity<List<TourSummaryResponse>> listTours(
-            @RequestParam(required = false) Long cityId
+            @RequestParam(required = false) Long cityId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
     ) {
-        return ResponseEntity.ok(tourService.listTours(cityId));
+        CursorPage<TourSummaryResponse> page =
+                tourService.listTours(cityId, minPrice, maxPrice, from, to, cursor, limit);
+
+        // Body stays a plain list for existing clients; the cursor travels in a header
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
     }
 
     @GetMapping("/{id}")
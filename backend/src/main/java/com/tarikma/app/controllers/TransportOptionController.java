@@ -1,15 +1,18 @@
 package com.tarikma.app.controllers;
 
 import com.tarikma.app.dto.transport.CreateTransportOptionRequest;
+import com.tarikma.app.dto.transport.TransportConnectionResponse;
 import com.tarikma.app.dto.transport.TransportOptionResponse;
 import com.tarikma.app.dto.transport.UpdateTransportOptionRequest;
 import com.tarikma.app.service.TransportOptionService;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalTime;
 import java.util.List;
 
 @RestController
@@ -31,6 +34,16 @@ public class TransportOptionController {
         return ResponseEntity.ok(transportOptionService.list(cityId, fromPlaceId, toPlaceId));
     }
 
+    @GetMapping("/connections")
+    public ResponseEntity<TransportConnectionResponse> findConnection(
+            @RequestParam Long fromPlaceId,
+            @RequestParam Long toPlaceId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime departAt,
+            @RequestParam(required = false) String objective
+    ) {
+        return ResponseEntity.ok(transportOptionService.findConnection(fromPlaceId, toPlaceId, departAt, objective));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<TransportOptionResponse> get(@PathVariable Long id) {
         return ResponseEntity.ok(transportOptionService.get(id));
@@ -9,6 +9,7 @@ public class CircuitRouteResponse {
     private String transportMode;
     private Double distanceKm;
     private Integer durationMinutes;
+    private boolean autoComputed;
 
     public Long getId() {
         return id;
@@ -65,4 +66,12 @@ public class CircuitRouteResponse {
     public void setDurationMinutes(Integer durationMinutes) {
         this.durationMinutes = durationMinutes;
     }
+
+    public boolean isAutoComputed() {
+        return autoComputed;
+    }
+
+    public void setAutoComputed(boolean autoComputed) {
+        this.autoComputed = autoComputed;
+    }
 }
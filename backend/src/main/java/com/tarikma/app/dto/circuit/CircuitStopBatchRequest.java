@@ -0,0 +1,22 @@
+package com.tarikma.app.dto.circuit;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class CircuitStopBatchRequest {
+
+    @NotEmpty(message = "operations cannot be empty")
+    @Size(max = 200, message = "At most 200 operations per batch")
+    private List<@Valid CircuitStopOperation> operations;
+
+    public List<CircuitStopOperation> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<CircuitStopOperation> operations) {
+        this.operations = operations;
+    }
+}
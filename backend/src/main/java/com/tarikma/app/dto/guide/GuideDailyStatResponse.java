@@ -0,0 +1,24 @@
+package com.tarikma.app.dto.guide;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class GuideDailyStatResponse {
+
+    private LocalDate date;
+    private int confirmedBookings;
+    private BigDecimal revenueMad;
+    private int seats;
+
+    public LocalDate getDate() { return date; }
+    public void setDate(LocalDate date) { this.date = date; }
+
+    public int getConfirmedBookings() { return confirmedBookings; }
+    public void setConfirmedBookings(int confirmedBookings) { this.confirmedBookings = confirmedBookings; }
+
+    public BigDecimal getRevenueMad() { return revenueMad; }
+    public void setRevenueMad(BigDecimal revenueMad) { this.revenueMad = revenueMad; }
+
+    public int getSeats() { return seats; }
+    public void setSeats(int seats) { this.seats = seats; }
+}
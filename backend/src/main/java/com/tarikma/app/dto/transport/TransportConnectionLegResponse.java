@@ -0,0 +1,97 @@
+package com.tarikma.app.dto.transport;
+
+import java.time.LocalTime;
+
+public class TransportConnectionLegResponse {
+
+    private Long fromPlaceId;
+    private String fromPlaceName;
+    private Long toPlaceId;
+    private String toPlaceName;
+    private Long transportOptionId;
+    private String mode;
+    private LocalTime departAt;
+    private LocalTime arriveAt;
+    private Double distanceKm;
+    private Double priceMad;
+
+    public Long getFromPlaceId() {
+        return fromPlaceId;
+    }
+
+    public void setFromPlaceId(Long fromPlaceId) {
+        this.fromPlaceId = fromPlaceId;
+    }
+
+    public String getFromPlaceName() {
+        return fromPlaceName;
+    }
+
+    public void setFromPlaceName(String fromPlaceName) {
+        this.fromPlaceName = fromPlaceName;
+    }
+
+    public Long getToPlaceId() {
+        return toPlaceId;
+    }
+
+    public void setToPlaceId(Long toPlaceId) {
+        this.toPlaceId = toPlaceId;
+    }
+
+    public String getToPlaceName() {
+        return toPlaceName;
+    }
+
+    public void setToPlaceName(String toPlaceName) {
+        this.toPlaceName = toPlaceName;
+    }
+
+    public Long getTransportOptionId() {
+        return transportOptionId;
+    }
+
+    public void setTransportOptionId(Long transportOptionId) {
+        this.transportOptionId = transportOptionId;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public LocalTime getDepartAt() {
+        return departAt;
+    }
+
+    public void setDepartAt(LocalTime departAt) {
+        this.departAt = departAt;
+    }
+
+    public LocalTime getArriveAt() {
+        return arriveAt;
+    }
+
+    public void setArriveAt(LocalTime arriveAt) {
+        this.arriveAt = arriveAt;
+    }
+
+    public Double getDistanceKm() {
+        return distanceKm;
+    }
+
+    public void setDistanceKm(Double distanceKm) {
+        this.distanceKm = distanceKm;
+    }
+
+    public Double getPriceMad() {
+        return priceMad;
+    }
+
+    public void setPriceMad(Double priceMad) {
+        this.priceMad = priceMad;
+    }
+}
@@ -0,0 +1,71 @@
+package com.tarikma.app.dto.transport;
+
+import java.time.LocalTime;
+import java.util.List;
+
+public class TransportConnectionResponse {
+
+    private String objective;
+    private LocalTime departAt;
+    private LocalTime arriveAt;
+    private Integer durationMinutes;
+    private Double priceMad;
+    private Integer transfers;
+    private List<TransportConnectionLegResponse> legs;
+
+    public String getObjective() {
+        return objective;
+    }
+
+    public void setObjective(String objective) {
+        this.objective = objective;
+    }
+
+    public LocalTime getDepartAt() {
+        return departAt;
+    }
+
+    public void setDepartAt(LocalTime departAt) {
+        this.departAt = departAt;
+    }
+
+    public LocalTime getArriveAt() {
+        return arriveAt;
+    }
+
+    public void setArriveAt(LocalTime arriveAt) {
+        this.arriveAt = arriveAt;
+    }
+
+    public Integer getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    public void setDurationMinutes(Integer durationMinutes) {
+        this.durationMinutes = durationMinutes;
+    }
+
+    public Double getPriceMad() {
+        return priceMad;
+    }
+
+    public void setPriceMad(Double priceMad) {
+        this.priceMad = priceMad;
+    }
+
+    public Integer getTransfers() {
+        return transfers;
+    }
+
+    public void setTransfers(Integer transfers) {
+        this.transfers = transfers;
+    }
+
+    public List<TransportConnectionLegResponse> getLegs() {
+        return legs;
+    }
+
+    public void setLegs(List<TransportConnectionLegResponse> legs) {
+        this.legs = legs;
+    }
+}
@@ -48,6 +48,9 @@ public class Booking {
     @Column(name = "paid_at")
     private Instant paidAt;
 
+    @Column(name = "last_checked_at")
+    private Instant lastCheckedAt;
+
     public Booking() {
     }
 
@@ -124,4 +127,12 @@ public class Booking {
     public void setPaidAt(Instant paidAt) {
         this.paidAt = paidAt;
     }
+
+    public Instant getLastCheckedAt() {
+        return lastCheckedAt;
+    }
+
+    public void setLastCheckedAt(Instant lastCheckedAt) {
+        this.lastCheckedAt = lastCheckedAt;
+    }
 }
@@ -42,6 +42,10 @@ public class Circuit {
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
 
+    // Maintained by CircuitRepository.incrementRevision
+    @Column(name = "revision", nullable = false, updatable = false)
+    private long revision;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "created_by", nullable = false)
     private User createdBy;
@@ -102,6 +106,10 @@ public class Circuit {
         return createdAt;
     }
 
+    public long getRevision() {
+        return revision;
+    }
+
     public User getCreatedBy() {
         return createdBy;
     }
@@ -0,0 +1,67 @@
+package com.tarikma.app.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Confirmed bookings for one circuit on one UTC day. Written only by the upserts in
+ * {@link com.tarikma.app.repository.CircuitDailyStatRepository}.
+ */
+@Entity
+@Table(name = "circuit_daily_stats")
+@IdClass(CircuitDailyStatId.class)
+public class CircuitDailyStat {
+
+    @Id
+    @Column(name = "circuit_id")
+    private Long circuitId;
+
+    @Id
+    @Column(name = "stat_date")
+    private LocalDate statDate;
+
+    @Column(name = "guide_id", nullable = false)
+    private Long guideId;
+
+    @Column(name = "confirmed_bookings", nullable = false)
+    private int confirmedBookings;
+
+    @Column(name = "revenue_mad", nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenueMad;
+
+    @Column(name = "seats", nullable = false)
+    private int seats;
+
+    public CircuitDailyStat() {
+    }
+
+    public Long getCircuitId() {
+        return circuitId;
+    }
+
+    public LocalDate getStatDate() {
+        return statDate;
+    }
+
+    public Long getGuideId() {
+        return guideId;
+    }
+
+    public int getConfirmedBookings() {
+        return confirmedBookings;
+    }
+
+    public BigDecimal getRevenueMad() {
+        return revenueMad;
+    }
+
+    public int getSeats() {
+        return seats;
+    }
+}
@@ -0,0 +1,39 @@
+package com.tarikma.app.entity;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+public class CircuitDailyStatId implements Serializable {
+
+    private Long circuitId;
+    private LocalDate statDate;
+
+    public CircuitDailyStatId() {
+    }
+
+    public CircuitDailyStatId(Long circuitId, LocalDate statDate) {
+        this.circuitId = circuitId;
+        this.statDate = statDate;
+    }
+
+    public Long getCircuitId() {
+        return circuitId;
+    }
+
+    public LocalDate getStatDate() {
+        return statDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CircuitDailyStatId that)) return false;
+        return Objects.equals(circuitId, that.circuitId) && Objects.equals(statDate, that.statDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(circuitId, statDate);
+    }
+}
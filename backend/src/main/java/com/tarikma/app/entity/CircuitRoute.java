@@ -46,6 +46,9 @@ public class CircuitRoute {
     @Column(name = "duration_minutes")
     private Integer durationMinutes;
 
+    @Column(name = "auto_computed", nullable = false)
+    private boolean autoComputed = false;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
 
@@ -119,6 +122,14 @@ public class CircuitRoute {
         this.durationMinutes = durationMinutes;
     }
 
+    public boolean isAutoComputed() {
+        return autoComputed;
+    }
+
+    public void setAutoComputed(boolean autoComputed) {
+        this.autoComputed = autoComputed;
+    }
+
     public Instant getCreatedAt() {
         return createdAt;
     }
@@ -34,6 +34,10 @@ public class CircuitSession {
     @Column(name = "max_participants")
     private Integer maxParticipants;
 
+    // Only changed by the conditional UPDATEs in CircuitSessionRepository; never written from the entity
+    @Column(name = "seats_taken", nullable = false, updatable = false)
+    private int seatsTaken;
+
     @Column(name = "notes", columnDefinition = "TEXT")
     private String notes;
 
@@ -92,6 +96,10 @@ public class CircuitSession {
         this.maxParticipants = maxParticipants;
     }
 
+    public int getSeatsTaken() {
+        return seatsTaken;
+    }
+
     public String getNotes() {
         return notes;
     }
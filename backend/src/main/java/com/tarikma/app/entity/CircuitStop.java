@@ -30,8 +30,8 @@ public class CircuitStop {
     @JoinColumn(name = "place_id", nullable = false)
     private Place place;
 
-    @Column(name = "position", nullable = false)
-    private Integer position;
+    @Column(name = "sort_key", nullable = false)
+    private Long sortKey;
 
     @Column(name = "day_number")
     private Integer dayNumber;
@@ -87,12 +87,12 @@ public class CircuitStop {
         this.place = place;
     }
 
-    public Integer getPosition() {
-        return position;
+    public Long getSortKey() {
+        return sortKey;
     }
 
-    public void setPosition(Integer position) {
-        this.position = position;
+    public void setSortKey(Long sortKey) {
+        this.sortKey = sortKey;
     }
 
     public Integer getDayNumber() {
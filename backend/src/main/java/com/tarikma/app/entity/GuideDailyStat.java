@@ -0,0 +1,60 @@
+package com.tarikma.app.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Confirmed bookings for one guide on one UTC day. Written only by the upserts in
+ * {@link com.tarikma.app.repository.GuideDailyStatRepository}.
+ */
+@Entity
+@Table(name = "guide_daily_stats")
+@IdClass(GuideDailyStatId.class)
+public class GuideDailyStat {
+
+    @Id
+    @Column(name = "guide_id")
+    private Long guideId;
+
+    @Id
+    @Column(name = "stat_date")
+    private LocalDate statDate;
+
+    @Column(name = "confirmed_bookings", nullable = false)
+    private int confirmedBookings;
+
+    @Column(name = "revenue_mad", nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenueMad;
+
+    @Column(name = "seats", nullable = false)
+    private int seats;
+
+    public GuideDailyStat() {
+    }
+
+    public Long getGuideId() {
+        return guideId;
+    }
+
+    public LocalDate getStatDate() {
+        return statDate;
+    }
+
+    public int getConfirmedBookings() {
+        return confirmedBookings;
+    }
+
+    public BigDecimal getRevenueMad() {
+        return revenueMad;
+    }
+
+    public int getSeats() {
+        return seats;
+    }
+}
@@ -0,0 +1,39 @@
+package com.tarikma.app.entity;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+public class GuideDailyStatId implements Serializable {
+
+    private Long guideId;
+    private LocalDate statDate;
+
+    public GuideDailyStatId() {
+    }
+
+    public GuideDailyStatId(Long guideId, LocalDate statDate) {
+        this.guideId = guideId;
+        this.statDate = statDate;
+    }
+
+    public Long getGuideId() {
+        return guideId;
+    }
+
+    public LocalDate getStatDate() {
+        return statDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GuideDailyStatId that)) return false;
+        return Objects.equals(guideId, that.guideId) && Objects.equals(statDate, that.statDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(guideId, statDate);
+    }
+}
@@ -0,0 +1,139 @@
+package com.tarikma.app.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Entity
+@Table(name = "tour_catalog")
+public class TourCatalogEntry {
+
+    @Id
+    @Column(name = "circuit_id")
+    private Long circuitId;
+
+    @Column(name = "city_id", nullable = false)
+    private Long cityId;
+
+    @Column(name = "name", nullable = false, length = 200)
+    private String name;
+
+    @Column(name = "notes", columnDefinition = "TEXT")
+    private String notes;
+
+    @Column(name = "price_mad", nullable = false, precision = 10, scale = 2)
+    private BigDecimal priceMad;
+
+    @Column(name = "city_name", length = 200)
+    private String cityName;
+
+    @Column(name = "guide_name", length = 150)
+    private String guideName;
+
+    @Column(name = "stop_count", nullable = false)
+    private int stopCount;
+
+    @Column(name = "upcoming_session_count", nullable = false)
+    private int upcomingSessionCount;
+
+    @Column(name = "next_session_at")
+    private Instant nextSessionAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public TourCatalogEntry() {
+    }
+
+    public TourCatalogEntry(Long circuitId) {
+        this.circuitId = circuitId;
+    }
+
+    public Long getCircuitId() {
+        return circuitId;
+    }
+
+    public Long getCityId() {
+        return cityId;
+    }
+
+    public void setCityId(Long cityId) {
+        this.cityId = cityId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public void setNotes(String notes) {
+        this.notes = notes;
+    }
+
+    public BigDecimal getPriceMad() {
+        return priceMad;
+    }
+
+    public void setPriceMad(BigDecimal priceMad) {
+        this.priceMad = priceMad;
+    }
+
+    public String getCityName() {
+        return cityName;
+    }
+
+    public void setCityName(String cityName) {
+        this.cityName = cityName;
+    }
+
+    public String getGuideName() {
+        return guideName;
+    }
+
+    public void setGuideName(String guideName) {
+        this.guideName = guideName;
+    }
+
+    public int getStopCount() {
+        return stopCount;
+    }
+
+    public void setStopCount(int stopCount) {
+        this.stopCount = stopCount;
+    }
+
+    public int getUpcomingSessionCount() {
+        return upcomingSessionCount;
+    }
+
+    public void setUpcomingSessionCount(int upcomingSessionCount) {
+        this.upcomingSessionCount = upcomingSessionCount;
+    }
+
+    public Instant getNextSessionAt() {
+        return nextSessionAt;
+    }
+
+    public void setNextSessionAt(Instant nextSessionAt) {
+        this.nextSessionAt = nextSessionAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,37 @@
+package com.tarikma.app.repository;
+
+import com.tarikma.app.entity.BookingOutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface BookingOutboxRepository extends JpaRepository<BookingOutboxEvent, Long> {
+
+    Optional<BookingOutboxEvent> findFirstByBookingIdAndEventTypeAndProcessedAtIsNull(Long bookingId, String eventType);
+
+    @Query("""
+        SELECT e.id FROM BookingOutboxEvent e
+        WHERE e.processedAt IS NULL
+          AND e.nextAttemptAt <= :now
+        ORDER BY e.nextAttemptAt ASC
+        """)
+    List<Long> findDueIds(Instant now, Limit limit);
+
+    /**
+     * Leases a due event to the caller until {@code leaseUntil}; returns 0 if another node got it first.
+     */
+    @Modifying
+    @Query("""
+        UPDATE BookingOutboxEvent e
+        SET e.nextAttemptAt = :leaseUntil
+        WHERE e.id = :id
+          AND e.processedAt IS NULL
+          AND e.nextAttemptAt <= :now
+        """)
+    int claim(Long id, Instant now, Instant leaseUntil);
+}
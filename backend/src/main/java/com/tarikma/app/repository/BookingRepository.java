@@ -1,23 +1,123 @@
 package com.tarikma.app.repository;
 
 import com.tarikma.app.entity.Booking;
+import com.tarikma.app.repository.projection.BookingCheckoutView;
+import com.tarikma.app.repository.projection.BookingHistoryView;
+import com.tarikma.app.repository.projection.BookingHoldView;
+import com.tarikma.app.repository.projection.GuideBookingExportView;
+import com.tarikma.app.repository.projection.GuideBookingStatsView;
+import com.tarikma.app.repository.projection.SessionBookingCountView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
 
-    List<Booking> findByUserIdOrderByCreatedAtDesc(Long userId);
+    /**
+     * One keyset page of a user's bookings, newest first, with exactly the fields of BookingResponse.
+     */
+    @Query("""
+        SELECT b.id AS id,
+               s.id AS circuitSessionId,
+               c.id AS circuitId,
+               c.name AS tourName,
+               s.startDateTime AS sessionStartDateTime,
+               b.amountMad AS amountMad,
+               b.status AS status,
+               b.createdAt AS createdAt,
+               b.paidAt AS paidAt
+        FROM Booking b
+        JOIN b.user u
+        JOIN b.circuitSession s
+        JOIN s.circuit c
+        WHERE u.email = :userEmail
+          AND (:beforeAt IS NULL
+               OR b.createdAt < :beforeAt
+               OR (b.createdAt = :beforeAt AND b.id < :beforeId))
+        ORDER BY b.createdAt DESC, b.id DESC
+        """)
+    List<BookingHistoryView> findHistoryPage(String userEmail, Instant beforeAt, Long beforeId, Limit limit);
 
     List<Booking> findByCircuitSessionId(Long circuitSessionId);
 
     Optional<Booking> findByStripeCheckoutId(String stripeCheckoutId);
 
-    long countByCircuitSessionIdAndStatus(Long circuitSessionId, String status);
+    boolean existsByCircuitSessionIdAndUserIdAndStatusNot(Long circuitSessionId, Long userId, String status);
+
+    @Query("SELECT b.status FROM Booking b WHERE b.id = :id")
+    Optional<String> findStatusById(Long id);
+
+    @Modifying
+    @Query("""
+        UPDATE Booking b
+        SET b.status = 'CONFIRMED', b.stripePaymentId = :paymentId, b.paidAt = :paidAt
+        WHERE b.id = :id
+          AND b.status = :fromStatus
+        """)
+    int confirm(Long id, String fromStatus, String paymentId, Instant paidAt);
 
-    boolean existsByCircuitSessionIdAndUserId(Long circuitSessionId, Long userId);
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = 'EXPIRED' WHERE b.id = :id AND b.status = 'PENDING'")
+    int expireIfPending(Long id);
+
+    @Query("""
+        SELECT b.id AS id, b.circuitSession.id AS sessionId
+        FROM Booking b
+        WHERE b.status = 'PENDING'
+          AND b.createdAt < :createdBefore
+        ORDER BY b.createdAt ASC
+        """)
+    List<BookingHoldView> findPendingCreatedBefore(Instant createdBefore, Limit limit);
+
+    @Query("""
+        SELECT b.id AS id, b.stripeCheckoutId AS checkoutId
+        FROM Booking b
+        WHERE b.status = 'PENDING'
+          AND b.stripeCheckoutId IS NOT NULL
+          AND b.createdAt < :createdBefore
+          AND (b.lastCheckedAt IS NULL OR b.lastCheckedAt < :checkedBefore)
+        ORDER BY b.lastCheckedAt ASC NULLS FIRST, b.createdAt ASC
+        """)
+    List<BookingCheckoutView> findPendingToReconcile(Instant createdBefore, Instant checkedBefore, Limit limit);
+
+    /**
+     * Stamps a PENDING booking as checked unless it was checked after {@code checkedBefore}.
+     * Returns 0 when someone else checked it recently, so Stripe is asked at most once per window.
+     */
+    @Modifying
+    @Query("""
+        UPDATE Booking b
+        SET b.lastCheckedAt = :now
+        WHERE b.id = :id
+          AND b.status = 'PENDING'
+          AND (b.lastCheckedAt IS NULL OR b.lastCheckedAt < :checkedBefore)
+        """)
+    int markChecked(Long id, Instant now, Instant checkedBefore);
+
+    @Query("""
+        SELECT b.circuitSession.id AS sessionId, COUNT(b) AS bookedCount
+        FROM Booking b
+        WHERE b.circuitSession.circuit.id = :circuitId
+          AND b.status = :status
+        GROUP BY b.circuitSession.id
+        """)
+    List<SessionBookingCountView> countByCircuitIdAndStatusGroupBySession(Long circuitId, String status);
+
+    @Query("""
+        SELECT b.circuitSession.id FROM Booking b
+        WHERE b.circuitSession.circuit.id = :circuitId
+          AND b.user.id = :userId
+          AND b.status <> 'EXPIRED'
+        """)
+    List<Long> findSessionIdsByCircuitIdAndUserId(Long circuitId, Long userId);
 
     @Query("""
         SELECT b FROM Booking b
@@ -28,4 +128,53 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
         ORDER BY b.createdAt DESC
         """)
     List<Booking> findByCircuitCreatedByIdOrderByCreatedAtDesc(Long guideUserId);
+
+    /**
+     * One keyset page of the bookings on a guide's circuits as flat rows, newest first, for export.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("""
+        SELECT b.id AS id,
+               c.id AS circuitId,
+               c.name AS circuitName,
+               s.id AS circuitSessionId,
+               s.startDateTime AS sessionStartDateTime,
+               s.endDateTime AS sessionEndDateTime,
+               s.status AS sessionStatus,
+               u.id AS touristId,
+               u.fullName AS touristName,
+               u.email AS touristEmail,
+               u.phone AS touristPhone,
+               b.amountMad AS amountMad,
+               b.status AS paymentStatus,
+               b.createdAt AS createdAt,
+               b.paidAt AS paidAt
+        FROM Booking b
+        JOIN b.circuitSession s
+        JOIN s.circuit c
+        JOIN b.user u
+        WHERE c.createdBy.id = :guideUserId
+          AND (:beforeAt IS NULL
+               OR b.createdAt < :beforeAt
+               OR (b.createdAt = :beforeAt AND b.id < :beforeId))
+        ORDER BY b.createdAt DESC, b.id DESC
+        """)
+    List<GuideBookingExportView> findGuideExportPage(Long guideUserId, Instant beforeAt, Long beforeId, Limit limit);
+
+    /**
+     * Booking totals for a guide's dashboard in one aggregate. Expired checkouts are not bookings.
+     */
+    @Query("""
+        SELECT COUNT(b) AS totalBookings,
+               COALESCE(SUM(CASE WHEN b.status = 'CONFIRMED' THEN 1 ELSE 0 END), 0) AS confirmedBookings,
+               COALESCE(SUM(CASE WHEN b.status = 'PENDING' THEN 1 ELSE 0 END), 0) AS pendingBookings,
+               COALESCE(SUM(CASE WHEN b.status = 'CONFIRMED' THEN b.amountMad END), 0) AS totalRevenue,
+               COUNT(DISTINCT b.user.id) AS totalTourists
+        FROM Booking b
+        JOIN b.circuitSession s
+        JOIN s.circuit c
+        WHERE c.createdBy.id = :guideUserId
+          AND b.status <> 'EXPIRED'
+        """)
+    GuideBookingStatsView aggregateForGuide(Long guideUserId);
 }
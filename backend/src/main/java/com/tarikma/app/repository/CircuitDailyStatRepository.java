@@ -0,0 +1,27 @@
+package com.tarikma.app.repository;
+
+import com.tarikma.app.entity.CircuitDailyStat;
+import com.tarikma.app.entity.CircuitDailyStatId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface CircuitDailyStatRepository extends JpaRepository<CircuitDailyStat, CircuitDailyStatId> {
+
+    List<CircuitDailyStat> findByCircuitIdAndStatDateBetweenOrderByStatDateAsc(Long circuitId, LocalDate from, LocalDate to);
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+        INSERT INTO circuit_daily_stats (circuit_id, stat_date, guide_id, confirmed_bookings, revenue_mad, seats)
+        VALUES (:circuitId, :statDate, :guideId, 1, :revenueMad, :seats)
+        ON CONFLICT (circuit_id, stat_date) DO UPDATE
+        SET confirmed_bookings = circuit_daily_stats.confirmed_bookings + 1,
+            revenue_mad = circuit_daily_stats.revenue_mad + EXCLUDED.revenue_mad,
+            seats = circuit_daily_stats.seats + EXCLUDED.seats
+        """)
+    int addConfirmedBooking(Long circuitId, LocalDate statDate, Long guideId, BigDecimal revenueMad, int seats);
+}
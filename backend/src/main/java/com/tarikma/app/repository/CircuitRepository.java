@@ -1,33 +1,104 @@
 package com.tarikma.app.repository;
 
 import com.tarikma.app.entity.Circuit;
+import com.tarikma.app.repository.projection.CircuitSummaryView;
+import com.tarikma.app.repository.projection.TourSummaryView;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 public interface CircuitRepository extends JpaRepository<Circuit, Long> {
 
     List<Circuit> findByCreatedById(Long createdById);
 
-    List<Circuit> findByCreatedByIdAndCityId(Long createdById, Long cityId);
+    /**
+     * One keyset page of a guide's circuits, newest first, with stop counts.
+     * The counts are computed only for the rows on the page.
+     */
+    @Query("""
+        SELECT c.id AS id,
+               c.name AS name,
+               c.notes AS notes,
+               c.priceMad AS priceMad,
+               c.createdAt AS createdAt,
+               c.city.id AS cityId,
+               (SELECT n.name FROM CityName n
+                 WHERE n.city = c.city
+                 ORDER BY n.primary DESC, n.id ASC
+                 LIMIT 1) AS cityName,
+               (SELECT COUNT(st) FROM CircuitStop st WHERE st.circuit = c) AS stopCount
+        FROM Circuit c
+        WHERE c.createdBy.id = :createdById
+          AND (:cityId IS NULL OR c.city.id = :cityId)
+          AND (:beforeAt IS NULL
+               OR c.createdAt < :beforeAt
+               OR (c.createdAt = :beforeAt AND c.id < :beforeId))
+        ORDER BY c.createdAt DESC, c.id DESC
+        """)
+    List<CircuitSummaryView> findSummaryPage(
+            Long createdById,
+            Long cityId,
+            Instant beforeAt,
+            Long beforeId,
+            Limit limit
+    );
 
+    /**
+     * A circuit with its city and routes fetched in the same query; see CircuitAggregateLoader.
+     */
     @Query("""
-        SELECT DISTINCT c FROM Circuit c
-        JOIN CircuitSession s ON s.circuit = c
-        WHERE c.priceMad IS NOT NULL
-          AND s.status = 'SCHEDULED'
-          AND s.startDateTime > CURRENT_TIMESTAMP
+        SELECT c FROM Circuit c
+        JOIN FETCH c.city
+        LEFT JOIN FETCH c.routes
+        WHERE c.id = :id
         """)
-    List<Circuit> findPublishedTours();
+    Optional<Circuit> findWithRoutesById(Long id);
+
+    /**
+     * Loads a circuit holding its row lock, so edits to its stop order are serialized.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Circuit c WHERE c.id = :id")
+    Optional<Circuit> findByIdForUpdate(Long id);
+
+    long countByCreatedById(Long createdById);
+
+    @Modifying
+    @Query("UPDATE Circuit c SET c.revision = c.revision + 1 WHERE c.id = :id")
+    int incrementRevision(Long id);
+
+    List<Circuit> findByCreatedByIdAndCityId(Long createdById, Long cityId);
 
     @Query("""
-        SELECT DISTINCT c FROM Circuit c
-        JOIN CircuitSession s ON s.circuit = c
-        WHERE c.priceMad IS NOT NULL
-          AND c.city.id = :cityId
-          AND s.status = 'SCHEDULED'
-          AND s.startDateTime > CURRENT_TIMESTAMP
+        SELECT c.id AS id,
+               c.name AS name,
+               c.notes AS notes,
+               c.priceMad AS priceMad,
+               c.city.id AS cityId,
+               (SELECT n.name FROM CityName n
+                 WHERE n.city = c.city
+                 ORDER BY n.primary DESC, n.id ASC
+                 LIMIT 1) AS cityName,
+               u.fullName AS guideName,
+               (SELECT COUNT(st) FROM CircuitStop st WHERE st.circuit = c) AS stopCount,
+               COUNT(s) AS upcomingSessionCount,
+               MIN(s.startDateTime) AS nextSessionAt
+        FROM Circuit c
+        JOIN c.createdBy u
+        LEFT JOIN CircuitSession s
+               ON s.circuit = c
+              AND s.status = 'SCHEDULED'
+              AND s.startDateTime > CURRENT_TIMESTAMP
+        WHERE c.id = :circuitId
+          AND c.priceMad IS NOT NULL
+        GROUP BY c.id, c.name, c.notes, c.priceMad, c.city.id, u.fullName
         """)
-    List<Circuit> findPublishedToursByCityId(Long cityId);
+    Optional<TourSummaryView> findTourSummaryByCircuitId(Long circuitId);
 }
@@ -1,11 +1,66 @@
 package com.tarikma.app.repository;
 
 import com.tarikma.app.entity.CircuitSession;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 public interface CircuitSessionRepository extends JpaRepository<CircuitSession, Long> {
 
     List<CircuitSession> findByCircuitIdOrderByStartDateTimeAsc(Long circuitId);
+
+    /**
+     * Loads a session holding its row lock, so seat reservations wait until the caller commits.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM CircuitSession s WHERE s.id = :id")
+    Optional<CircuitSession> findByIdForUpdate(Long id);
+
+    List<CircuitSession> findByCircuitIdAndStatusAndStartDateTimeAfterOrderByStartDateTimeAsc(
+            Long circuitId, String status, Instant after);
+
+    @Query("""
+        SELECT COUNT(s) FROM CircuitSession s
+        WHERE s.circuit.createdBy.id = :guideUserId
+          AND s.status = 'SCHEDULED'
+          AND s.startDateTime > :after
+        """)
+    long countScheduledByGuideAfter(Long guideUserId, Instant after);
+
+    /**
+     * Takes one seat if the session is still bookable and not full.
+     * Returns 1 when the seat was taken, 0 otherwise; the row lock serialises concurrent checkouts.
+     */
+    @Modifying
+    @Query("""
+        UPDATE CircuitSession s
+        SET s.seatsTaken = s.seatsTaken + 1
+        WHERE s.id = :sessionId
+          AND s.status = 'SCHEDULED'
+          AND (s.maxParticipants IS NULL OR s.seatsTaken < s.maxParticipants)
+        """)
+    int reserveSeat(Long sessionId);
+
+    @Modifying
+    @Query("""
+        UPDATE CircuitSession s
+        SET s.seatsTaken = s.seatsTaken - 1
+        WHERE s.id = :sessionId
+          AND s.seatsTaken > 0
+        """)
+    int releaseSeat(Long sessionId);
+
+    @Modifying
+    @Query("""
+        UPDATE CircuitSession s
+        SET s.seatsTaken = CASE WHEN s.seatsTaken > :count THEN s.seatsTaken - :count ELSE 0 END
+        WHERE s.id = :sessionId
+        """)
+    int releaseSeats(Long sessionId, int count);
 }
@@ -2,17 +2,69 @@ package com.tarikma.app.repository;
 
 import com.tarikma.app.entity.CircuitStop;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalTime;
 import java.util.List;
 import java.util.Optional;
 
 public interface CircuitStopRepository extends JpaRepository<CircuitStop, Long> {
 
-    List<CircuitStop> findByCircuitIdOrderByPositionAsc(Long circuitId);
+    List<CircuitStop> findByCircuitIdOrderBySortKeyAsc(Long circuitId);
 
-    long countByCircuitId(Long circuitId);
+    @Query("""
+        SELECT s FROM CircuitStop s
+        JOIN FETCH s.place
+        WHERE s.circuit.id = :circuitId
+        ORDER BY s.sortKey
+        """)
+    List<CircuitStop> findWithPlacesByCircuitId(Long circuitId);
 
-    Optional<CircuitStop> findTopByCircuitIdOrderByPositionDesc(Long circuitId);
+    Optional<CircuitStop> findTopByCircuitIdOrderBySortKeyDesc(Long circuitId);
 
     boolean existsByCircuitIdAndPlaceId(Long circuitId, Long placeId);
+
+    /**
+     * Whether another timed stop on the same day overlaps [startTime, endTime). Only that day's
+     * stops are read, through idx_circuit_stops_day_window.
+     */
+    @Query("""
+        SELECT COUNT(s) > 0 FROM CircuitStop s
+        WHERE s.circuit.id = :circuitId
+          AND s.dayNumber = :dayNumber
+          AND s.startTime < :endTime
+          AND s.endTime > :startTime
+          AND (:excludeStopId IS NULL OR s.id <> :excludeStopId)
+        """)
+    boolean existsOverlappingWindow(Long circuitId, Integer dayNumber, LocalTime startTime, LocalTime endTime, Long excludeStopId);
+
+    /**
+     * Circuits where two neighbouring stops are closer than minGap, i.e. running out of room for inserts.
+     */
+    @Query(value = """
+        SELECT g.circuit_id
+        FROM (SELECT circuit_id,
+                     sort_key - LAG(sort_key) OVER (PARTITION BY circuit_id ORDER BY sort_key) AS gap
+              FROM circuit_stops) g
+        WHERE g.gap < :minGap
+        GROUP BY g.circuit_id
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<Long> findCircuitIdsWithSortKeyGapBelow(long minGap, int limit);
+
+    /**
+     * Rewrites a circuit's sort keys to gap, 2 * gap, ... in their current order.
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE circuit_stops cs
+        SET sort_key = r.rn * :gap
+        FROM (SELECT id, ROW_NUMBER() OVER (ORDER BY sort_key) AS rn
+              FROM circuit_stops
+              WHERE circuit_id = :circuitId) r
+        WHERE cs.id = r.id
+          AND cs.sort_key <> r.rn * :gap
+        """, nativeQuery = true)
+    int respaceSortKeys(Long circuitId, long gap);
 }
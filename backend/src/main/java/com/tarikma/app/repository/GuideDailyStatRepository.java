@@ -0,0 +1,27 @@
+package com.tarikma.app.repository;
+
+import com.tarikma.app.entity.GuideDailyStat;
+import com.tarikma.app.entity.GuideDailyStatId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface GuideDailyStatRepository extends JpaRepository<GuideDailyStat, GuideDailyStatId> {
+
+    List<GuideDailyStat> findByGuideIdAndStatDateBetweenOrderByStatDateAsc(Long guideId, LocalDate from, LocalDate to);
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+        INSERT INTO guide_daily_stats (guide_id, stat_date, confirmed_bookings, revenue_mad, seats)
+        VALUES (:guideId, :statDate, 1, :revenueMad, :seats)
+        ON CONFLICT (guide_id, stat_date) DO UPDATE
+        SET confirmed_bookings = guide_daily_stats.confirmed_bookings + 1,
+            revenue_mad = guide_daily_stats.revenue_mad + EXCLUDED.revenue_mad,
+            seats = guide_daily_stats.seats + EXCLUDED.seats
+        """)
+    int addConfirmedBooking(Long guideId, LocalDate statDate, BigDecimal revenueMad, int seats);
+}
@@ -0,0 +1,52 @@
+package com.tarikma.app.repository;
+
+import com.tarikma.app.entity.StripeWebhookEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface StripeWebhookEventRepository extends JpaRepository<StripeWebhookEvent, String> {
+
+    /**
+     * Stores a webhook unless its event id is already in the inbox. Returns 0 for a redelivery.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+        INSERT INTO stripe_webhook_events
+            (event_id, event_type, checkout_session_id, payment_intent_id, booking_id, payload)
+        VALUES (:eventId, :eventType, :checkoutSessionId, :paymentIntentId, :bookingId, :payload)
+        ON CONFLICT (event_id) DO NOTHING
+        """)
+    int insertIfAbsent(
+            String eventId,
+            String eventType,
+            String checkoutSessionId,
+            String paymentIntentId,
+            Long bookingId,
+            String payload
+    );
+
+    /**
+     * Locks up to {@code limit} due events, skipping rows another worker has locked.
+     */
+    @Query(nativeQuery = true, value = """
+        SELECT event_id FROM stripe_webhook_events
+        WHERE processed_at IS NULL
+          AND next_attempt_at <= :now
+        ORDER BY received_at
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+        """)
+    List<String> lockDueEventIds(Instant now, int limit);
+
+    @Modifying
+    @Query("""
+        UPDATE StripeWebhookEvent e
+        SET e.attempts = e.attempts + 1, e.nextAttemptAt = :leaseUntil
+        WHERE e.eventId IN :eventIds
+        """)
+    int lease(List<String> eventIds, Instant leaseUntil);
+}
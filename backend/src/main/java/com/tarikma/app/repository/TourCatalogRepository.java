@@ -0,0 +1,62 @@
+package com.tarikma.app.repository;
+
+import com.tarikma.app.entity.TourCatalogEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+public interface TourCatalogRepository extends JpaRepository<TourCatalogEntry, Long> {
+
+    /**
+     * One keyset page of the public catalog, ordered by (nextSessionAt, circuitId).
+     * Every filter is optional; the date window keeps tours with a scheduled
+     * session starting inside [from, to). Whether a tour still has an upcoming session
+     * is checked against circuit_sessions, because the stored nextSessionAt only moves
+     * on edits and the stale refresh.
+     */
+    @Query("""
+        SELECT t FROM TourCatalogEntry t
+        WHERE t.upcomingSessionCount > 0
+          AND (:cityId IS NULL OR t.cityId = :cityId)
+          AND (:minPrice IS NULL OR t.priceMad >= :minPrice)
+          AND (:maxPrice IS NULL OR t.priceMad <= :maxPrice)
+          AND EXISTS (
+                SELECT 1 FROM CircuitSession s
+                WHERE s.circuit.id = t.circuitId
+                  AND s.status = 'SCHEDULED'
+                  AND s.startDateTime > CURRENT_TIMESTAMP
+                  AND (:from IS NULL OR s.startDateTime >= :from)
+                  AND (:to IS NULL OR s.startDateTime < :to))
+          AND (:afterAt IS NULL
+               OR t.nextSessionAt > :afterAt
+               OR (t.nextSessionAt = :afterAt AND t.circuitId > :afterId))
+        ORDER BY t.nextSessionAt ASC, t.circuitId ASC
+        """)
+    List<TourCatalogEntry> findListedPage(
+            Long cityId,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            Instant from,
+            Instant to,
+            Instant afterAt,
+            Long afterId,
+            Limit limit
+    );
+
+    @Query("SELECT t.circuitId FROM TourCatalogEntry t WHERE t.nextSessionAt <= :now")
+    List<Long> findCircuitIdsWithPastNextSession(Instant now);
+
+    @Query("SELECT t.circuitId FROM TourCatalogEntry t WHERE t.cityId = :cityId")
+    List<Long> findCircuitIdsByCityId(Long cityId);
+
+    @Query("""
+        SELECT t.circuitId FROM TourCatalogEntry t, Circuit c
+        WHERE c.id = t.circuitId
+          AND c.createdBy.id = :userId
+        """)
+    List<Long> findCircuitIdsByGuideUserId(Long userId);
+}
@@ -2,7 +2,9 @@ package com.tarikma.app.repository;
 
 import com.tarikma.app.entity.TransportOption;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface TransportOptionRepository extends JpaRepository<TransportOption, Long> {
@@ -10,4 +12,22 @@ public interface TransportOptionRepository extends JpaRepository<TransportOption
     List<TransportOption> findByFromPlaceCityId(Long cityId);
 
     List<TransportOption> findByFromPlaceIdAndToPlaceId(Long fromPlaceId, Long toPlaceId);
+
+    /**
+     * Options from one place to another, including bidirectional ones stored the other way round.
+     */
+    @Query("""
+        SELECT o FROM TransportOption o
+        JOIN FETCH o.fromPlace
+        JOIN FETCH o.toPlace
+        WHERE (o.fromPlace.id = :fromPlaceId AND o.toPlace.id = :toPlaceId)
+           OR (o.bidirectional = true AND o.fromPlace.id = :toPlaceId AND o.toPlace.id = :fromPlaceId)
+        """)
+    List<TransportOption> findConnecting(Long fromPlaceId, Long toPlaceId);
+
+    @Query("""
+        SELECT o FROM TransportOption o
+        WHERE o.fromPlace.id IN :placeIds AND o.toPlace.id IN :placeIds
+        """)
+    List<TransportOption> findBetweenPlaces(Collection<Long> placeIds);
 }
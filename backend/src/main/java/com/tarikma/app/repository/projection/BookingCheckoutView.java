@@ -0,0 +1,8 @@
+package com.tarikma.app.repository.projection;
+
+public interface BookingCheckoutView {
+
+    Long getId();
+
+    String getCheckoutId();
+}
@@ -0,0 +1,25 @@
+package com.tarikma.app.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public interface BookingHistoryView {
+
+    Long getId();
+
+    Long getCircuitSessionId();
+
+    Long getCircuitId();
+
+    String getTourName();
+
+    Instant getSessionStartDateTime();
+
+    BigDecimal getAmountMad();
+
+    String getStatus();
+
+    Instant getCreatedAt();
+
+    Instant getPaidAt();
+}
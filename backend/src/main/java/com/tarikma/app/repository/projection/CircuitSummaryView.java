@@ -0,0 +1,23 @@
+package com.tarikma.app.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public interface CircuitSummaryView {
+
+    Long getId();
+
+    String getName();
+
+    String getNotes();
+
+    BigDecimal getPriceMad();
+
+    Instant getCreatedAt();
+
+    Long getCityId();
+
+    String getCityName();
+
+    Long getStopCount();
+}
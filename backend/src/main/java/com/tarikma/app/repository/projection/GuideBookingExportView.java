@@ -0,0 +1,37 @@
+package com.tarikma.app.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public interface GuideBookingExportView {
+
+    Long getId();
+
+    Long getCircuitId();
+
+    String getCircuitName();
+
+    Long getCircuitSessionId();
+
+    Instant getSessionStartDateTime();
+
+    Instant getSessionEndDateTime();
+
+    String getSessionStatus();
+
+    Long getTouristId();
+
+    String getTouristName();
+
+    String getTouristEmail();
+
+    String getTouristPhone();
+
+    BigDecimal getAmountMad();
+
+    String getPaymentStatus();
+
+    Instant getCreatedAt();
+
+    Instant getPaidAt();
+}
@@ -0,0 +1,16 @@
+package com.tarikma.app.repository.projection;
+
+import java.math.BigDecimal;
+
+public interface GuideBookingStatsView {
+
+    Long getTotalBookings();
+
+    Long getConfirmedBookings();
+
+    Long getPendingBookings();
+
+    BigDecimal getTotalRevenue();
+
+    Long getTotalTourists();
+}
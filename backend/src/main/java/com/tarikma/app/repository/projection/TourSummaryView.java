@@ -0,0 +1,30 @@
+package com.tarikma.app.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Flat row of the public tour catalog, computed in a single aggregate query.
+ */
+public interface TourSummaryView {
+
+    Long getId();
+
+    String getName();
+
+    String getNotes();
+
+    BigDecimal getPriceMad();
+
+    Long getCityId();
+
+    String getCityName();
+
+    String getGuideName();
+
+    Long getStopCount();
+
+    Long getUpcomingSessionCount();
+
+    Instant getNextSessionAt();
+}
@@ -18,19 +18,22 @@ public class AdminService {
     private final CompanyRepository companyRepository;
     private final CompanyMemberRepository companyMemberRepository;
     private final GuideRepository guideRepository;
+    private final TourCatalogService tourCatalogService;
 
     public AdminService(
             UserRepository userRepository,
             RoleRepository roleRepository,
             CompanyRepository companyRepository,
             CompanyMemberRepository companyMemberRepository,
-            GuideRepository guideRepository
+            GuideRepository guideRepository,
+            TourCatalogService tourCatalogService
     ) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.companyRepository = companyRepository;
         this.companyMemberRepository = companyMemberRepository;
         this.guideRepository = guideRepository;
+        this.tourCatalogService = tourCatalogService;
     }
 
     // ── Users ──────────────────────────────────────────────────
@@ -58,7 +61,11 @@ public class AdminService {
         }
         if (req.getPhone() != null) user.setPhone(req.getPhone().trim());
         if (req.getVerified() != null) user.setVerified(req.getVerified());
-        return toUserResponse(userRepository.save(user));
+        user = userRepository.save(user);
+        if (req.getFullName() != null) {
+            tourCatalogService.refreshGuide(user.getId());
+        }
+        return toUserResponse(user);
     }
 
     @Transactional
@@ -0,0 +1,40 @@
+package com.tarikma.app.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Releases seats held by checkouts that were abandoned and never reported as expired by Stripe.
+ */
+@Component
+public class BookingHoldSweeper {
+
+    // Leaves time for a late checkout.session.expired or completed webhook to land first
+    private static final Duration GRACE = Duration.ofMinutes(5);
+
+    private final BookingService bookingService;
+    private final int batchSize;
+
+    public BookingHoldSweeper(
+            BookingService bookingService,
+            @Value("${app.booking.hold-sweep-batch-size:200}") int batchSize
+    ) {
+        this.bookingService = bookingService;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.booking.hold-sweep-ms:60000}")
+    public void sweep() {
+        Instant cutoff = Instant.now().minus(bookingService.getHoldDuration()).minus(GRACE);
+
+        // One transaction per batch keeps row locks short
+        int processed;
+        do {
+            processed = bookingService.expireHoldsCreatedBefore(cutoff, batchSize);
+        } while (processed == batchSize);
+    }
+}
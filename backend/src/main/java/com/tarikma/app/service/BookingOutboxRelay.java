@@ -0,0 +1,32 @@
+package com.tarikma.app.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recovers bookings whose request died between committing the seat hold and attaching the
+ * Stripe checkout; bookings Stripe has no checkout for are expired.
+ */
+@Component
+public class BookingOutboxRelay {
+
+    private final BookingService bookingService;
+    private final int batchSize;
+
+    public BookingOutboxRelay(
+            BookingService bookingService,
+            @Value("${app.booking.outbox-batch-size:50}") int batchSize
+    ) {
+        this.bookingService = bookingService;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.booking.outbox-relay-ms:30000}")
+    public void relay() {
+        int processed;
+        do {
+            processed = bookingService.relayCheckoutOutbox(batchSize);
+        } while (processed == batchSize);
+    }
+}
@@ -0,0 +1,48 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.repository.projection.BookingCheckoutView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Settles PENDING bookings whose webhook never arrived by asking Stripe directly,
+ * a bounded batch per run and at a fixed request rate.
+ */
+@Component
+public class BookingReconciler {
+
+    // Webhooks normally settle a checkout within seconds; only look at bookings older than this
+    private static final Duration MIN_AGE = Duration.ofMinutes(2);
+    private static final Duration RECHECK_AFTER = Duration.ofMinutes(5);
+
+    private final BookingService bookingService;
+    private final int batchSize;
+    private final long spacingMillis;
+
+    public BookingReconciler(
+            BookingService bookingService,
+            @Value("${app.booking.reconcile-batch-size:50}") int batchSize,
+            @Value("${app.booking.reconcile-requests-per-second:5}") int requestsPerSecond
+    ) {
+        this.bookingService = bookingService;
+        this.batchSize = batchSize;
+        this.spacingMillis = 1000L / Math.max(1, requestsPerSecond);
+    }
+
+    @Scheduled(fixedDelayString = "${app.booking.reconcile-ms:60000}")
+    public void reconcile() throws InterruptedException {
+        if (!bookingService.isConfigured()) {
+            return;
+        }
+
+        List<BookingCheckoutView> batch = bookingService.claimBookingsToReconcile(MIN_AGE, RECHECK_AFTER, batchSize);
+        for (BookingCheckoutView booking : batch) {
+            bookingService.reconcileBooking(booking.getId(), booking.getCheckoutId());
+            Thread.sleep(spacingMillis);
+        }
+    }
+}
@@ -1,61 +1,97 @@
 package com.tarikma.app.service;
 
 import com.stripe.Stripe;
-import com.stripe.exception.SignatureVerificationException;
+import com.stripe.exception.IdempotencyException;
+import com.stripe.exception.InvalidRequestException;
 import com.stripe.exception.StripeException;
-import com.stripe.model.Event;
 import com.stripe.model.checkout.Session;
-import com.stripe.net.Webhook;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.checkout.SessionCreateParams;
+import com.tarikma.app.dto.CursorPage;
 import com.tarikma.app.dto.tour.BookingResponse;
 import com.tarikma.app.entity.Booking;
+import com.tarikma.app.entity.BookingOutboxEvent;
 import com.tarikma.app.entity.CircuitSession;
 import com.tarikma.app.entity.User;
 import com.tarikma.app.exception.BadRequestException;
 import com.tarikma.app.exception.NotFoundException;
+import com.tarikma.app.repository.BookingOutboxRepository;
 import com.tarikma.app.repository.BookingRepository;
 import com.tarikma.app.repository.CircuitSessionRepository;
 import com.tarikma.app.repository.UserRepository;
+import com.tarikma.app.repository.projection.BookingCheckoutView;
+import com.tarikma.app.repository.projection.BookingHistoryView;
+import com.tarikma.app.repository.projection.BookingHoldView;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Service
 public class BookingService {
 
     private static final Logger log = LoggerFactory.getLogger(BookingService.class);
 
+    // How long the synchronous checkout owns its outbox event before the relay may retry it
+    private static final Duration CHECKOUT_IN_FLIGHT = Duration.ofMinutes(2);
+    private static final int MAX_CHECKOUT_ATTEMPTS = 5;
+
+    // Stripe rejects a checkout created less than this long before its expires_at
+    private static final Duration STRIPE_MIN_CHECKOUT_LIFETIME = Duration.ofMinutes(30);
+    // Room for the synchronous create to reach Stripe after the booking commits; must stay below CHECKOUT_IN_FLIGHT
+    private static final Duration CHECKOUT_CREATE_SLACK = Duration.ofMinutes(1);
+
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+
+    // Reloading the success page must not turn into a Stripe call per request
+    private static final Duration VERIFY_THROTTLE = Duration.ofSeconds(15);
+
     private final BookingRepository bookingRepository;
     private final CircuitSessionRepository circuitSessionRepository;
     private final UserRepository userRepository;
+    private final BookingOutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BookingStatsRollup bookingStatsRollup;
 
     @Value("${app.stripe.secret-key:}")
     private String stripeSecretKey;
 
-    @Value("${app.stripe.webhook-secret:}")
-    private String stripeWebhookSecret;
-
     @Value("${app.stripe.success-url:}")
     private String successUrl;
 
     @Value("${app.stripe.cancel-url:}")
     private String cancelUrl;
 
+    // Stripe accepts checkout lifetimes between 30 minutes and 24 hours
+    @Value("${app.booking.hold-minutes:30}")
+    private long holdMinutes;
+
     public BookingService(
             BookingRepository bookingRepository,
             CircuitSessionRepository circuitSessionRepository,
-            UserRepository userRepository
+            UserRepository userRepository,
+            BookingOutboxRepository outboxRepository,
+            TransactionTemplate transactionTemplate,
+            BookingStatsRollup bookingStatsRollup
     ) {
         this.bookingRepository = bookingRepository;
         this.circuitSessionRepository = circuitSessionRepository;
         this.userRepository = userRepository;
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.bookingStatsRollup = bookingStatsRollup;
     }
 
     @PostConstruct
@@ -72,12 +108,66 @@ public class BookingService {
         return stripeSecretKey != null && !stripeSecretKey.isBlank();
     }
 
-    @Transactional
+    /**
+     * How long a PENDING booking holds its seat; also the lifetime of its Stripe checkout.
+     */
+    public Duration getHoldDuration() {
+        // Capped so the create slack still fits under Stripe's 24-hour maximum
+        return Duration.ofMinutes(Math.clamp(holdMinutes, 30, 24 * 60 - CHECKOUT_CREATE_SLACK.toMinutes()));
+    }
+
+    /**
+     * Two-phase checkout: the seat hold and booking commit first, Stripe is called with no
+     * transaction (and no pooled connection) held, then the checkout id is attached in a second
+     * short transaction. A crash between the phases is recovered by {@link #relayCheckoutOutbox(int)}.
+     */
     public String createCheckoutSession(Long circuitSessionId, String userEmail) {
         if (!isConfigured()) {
             throw new BadRequestException("Payment service is not configured");
         }
 
+        CheckoutDraft draft = transactionTemplate.execute(tx -> reserveBooking(circuitSessionId, userEmail));
+
+        Session checkoutSession;
+        try {
+            checkoutSession = createStripeCheckout(draft);
+        } catch (StripeException e) {
+            log.error("Stripe checkout creation failed for booking {}", draft.bookingId(), e);
+            transactionTemplate.executeWithoutResult(tx -> abandonCheckout(draft.bookingId(), e.getMessage()));
+            throw new BadRequestException("Payment service error: " + e.getMessage());
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(tx -> attachCheckout(draft.bookingId(), checkoutSession.getId()));
+        } catch (RuntimeException e) {
+            // The relay replays the idempotent create and attaches it; webhooks also match on metadata
+            log.error("Could not attach checkout {} to booking {}", checkoutSession.getId(), draft.bookingId(), e);
+        }
+        return checkoutSession.getUrl();
+    }
+
+    /**
+     * Attaches checkouts that Stripe created but the synchronous request never recorded, by replaying
+     * the create under its idempotency key. Replays only run once the checkout's expiry is too close
+     * for Stripe to accept it as a new one, so they can recover a checkout but never open one nobody
+     * was sent to; a booking without a checkout is expired and its seat released.
+     * Returns the number of due outbox events looked at, so callers can loop until a short batch.
+     */
+    public int relayCheckoutOutbox(int batchSize) {
+        Instant now = Instant.now();
+        List<Long> due = transactionTemplate.execute(tx -> outboxRepository.findDueIds(now, Limit.of(batchSize)));
+
+        for (Long eventId : due) {
+            Boolean claimed = transactionTemplate.execute(tx ->
+                    outboxRepository.claim(eventId, now, now.plus(CHECKOUT_IN_FLIGHT)) == 1);
+            if (Boolean.TRUE.equals(claimed)) {
+                retryCheckout(eventId);
+            }
+        }
+        return due.size();
+    }
+
+    private CheckoutDraft reserveBooking(Long circuitSessionId, String userEmail) {
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new NotFoundException("User not found"));
 
@@ -103,172 +193,391 @@ public class BookingService {
             throw new BadRequestException("This tour does not have a valid price");
         }
 
-        if (bookingRepository.existsByCircuitSessionIdAndUserId(circuitSessionId, user.getId())) {
+        // An EXPIRED checkout does not count, so the user can retry after an abandoned payment
+        if (bookingRepository.existsByCircuitSessionIdAndUserIdAndStatusNot(circuitSessionId, user.getId(), "EXPIRED")) {
             throw new BadRequestException("You have already booked this session");
         }
 
-        if (session.getMaxParticipants() != null) {
-            long confirmed = bookingRepository.countByCircuitSessionIdAndStatus(circuitSessionId, "CONFIRMED");
-            if (confirmed >= session.getMaxParticipants()) {
-                throw new BadRequestException("This session is fully booked");
-            }
+        // Held until payment completes or the checkout expires
+        if (circuitSessionRepository.reserveSeat(circuitSessionId) == 0) {
+            throw new BadRequestException("This session is fully booked");
         }
 
-        // Create booking record
         Booking booking = new Booking();
         booking.setCircuitSession(session);
         booking.setUser(user);
         booking.setAmountMad(price);
         booking.setStatus("PENDING");
+        booking = bookingRepository.save(booking);
 
-        // Create Stripe checkout session
-        try {
-            long amountCentimes = price.multiply(BigDecimal.valueOf(100)).longValue();
-
-            String tourName = session.getCircuit().getName();
-            String resolvedCancelUrl = cancelUrl.replace("{tourId}", String.valueOf(session.getCircuit().getId()));
-
-            SessionCreateParams params = SessionCreateParams.builder()
-                    .setMode(SessionCreateParams.Mode.PAYMENT)
-                    .setSuccessUrl(successUrl)
-                    .setCancelUrl(resolvedCancelUrl)
-                    .setCustomerEmail(user.getEmail())
-                    .addLineItem(
-                            SessionCreateParams.LineItem.builder()
-                                    .setQuantity(1L)
-                                    .setPriceData(
-                                            SessionCreateParams.LineItem.PriceData.builder()
-                                                    .setCurrency("mad")
-                                                    .setUnitAmount(amountCentimes)
-                                                    .setProductData(
-                                                            SessionCreateParams.LineItem.PriceData.ProductData.builder()
-                                                                    .setName(tourName)
-                                                                    .setDescription("Tour booking: " + tourName)
-                                                                    .build()
-                                                    )
-                                                    .build()
-                                    )
-                                    .build()
-                    )
-                    .putMetadata("booking_session_id", String.valueOf(circuitSessionId))
-                    .putMetadata("user_id", String.valueOf(user.getId()))
-                    .build();
-
-            Session checkoutSession = Session.create(params);
-
-            booking.setStripeCheckoutId(checkoutSession.getId());
-            bookingRepository.save(booking);
-
-            return checkoutSession.getUrl();
+        // Becomes due only if the synchronous attempt does not finish in time
+        outboxRepository.save(new BookingOutboxEvent(
+                booking.getId(),
+                BookingOutboxEvent.CREATE_CHECKOUT,
+                Instant.now().plus(CHECKOUT_IN_FLIGHT)));
 
-        } catch (StripeException e) {
-            log.error("Stripe checkout creation failed", e);
-            throw new BadRequestException("Payment service error: " + e.getMessage());
+        return draftOf(booking);
+    }
+
+    private Session createStripeCheckout(CheckoutDraft draft) throws StripeException {
+        long amountCentimes = draft.amountMad().multiply(BigDecimal.valueOf(100)).longValue();
+        String resolvedCancelUrl = cancelUrl.replace("{tourId}", String.valueOf(draft.circuitId()));
+
+        // Every parameter derives from the booking so a retry under the same idempotency key matches
+        SessionCreateParams params = SessionCreateParams.builder()
+                .setMode(SessionCreateParams.Mode.PAYMENT)
+                .setSuccessUrl(successUrl)
+                .setCancelUrl(resolvedCancelUrl)
+                .setCustomerEmail(draft.customerEmail())
+                .setExpiresAt(draft.expiresAt().getEpochSecond())
+                .addLineItem(
+                        SessionCreateParams.LineItem.builder()
+                                .setQuantity(1L)
+                                .setPriceData(
+                                        SessionCreateParams.LineItem.PriceData.builder()
+                                                .setCurrency("mad")
+                                                .setUnitAmount(amountCentimes)
+                                                .setProductData(
+                                                        SessionCreateParams.LineItem.PriceData.ProductData.builder()
+                                                                .setName(draft.tourName())
+                                                                .setDescription("Tour booking: " + draft.tourName())
+                                                                .build()
+                                                )
+                                                .build()
+                                )
+                                .build()
+                )
+                .putMetadata("booking_id", String.valueOf(draft.bookingId()))
+                .putMetadata("booking_session_id", String.valueOf(draft.circuitSessionId()))
+                .putMetadata("user_id", String.valueOf(draft.userId()))
+                .build();
+
+        RequestOptions options = RequestOptions.builder()
+                .setIdempotencyKey("booking-" + draft.bookingId() + "-checkout")
+                .build();
+
+        return Session.create(params, options);
+    }
+
+    private void attachCheckout(Long bookingId, String checkoutId) {
+        Booking booking = bookingRepository.findById(bookingId)
+                .orElseThrow(() -> new NotFoundException("Booking not found"));
+        if (booking.getStripeCheckoutId() == null) {
+            booking.setStripeCheckoutId(checkoutId);
         }
+        markOutboxProcessed(bookingId, null);
     }
 
-    @Transactional
-    public void handleWebhook(String payload, String sigHeader) {
-        if (stripeWebhookSecret == null || stripeWebhookSecret.isBlank()) {
-            log.warn("Stripe webhook secret not configured, skipping verification");
+    private void abandonCheckout(Long bookingId, String error) {
+        bookingRepository.findById(bookingId).ifPresent(this::expireBooking);
+        markOutboxProcessed(bookingId, error);
+    }
+
+    private void markOutboxProcessed(Long bookingId, String error) {
+        outboxRepository.findFirstByBookingIdAndEventTypeAndProcessedAtIsNull(bookingId, BookingOutboxEvent.CREATE_CHECKOUT)
+                .ifPresent(event -> {
+                    event.setProcessedAt(Instant.now());
+                    if (error != null) {
+                        event.setLastError(error);
+                    }
+                });
+    }
+
+    private void retryCheckout(Long eventId) {
+        CheckoutDraft draft = transactionTemplate.execute(tx -> {
+            BookingOutboxEvent event = outboxRepository.findById(eventId).orElse(null);
+            if (event == null) {
+                return null;
+            }
+            Booking booking = bookingRepository.findById(event.getBookingId()).orElse(null);
+
+            // Attached, paid or swept in the meantime: nothing left to retry
+            if (booking == null || !"PENDING".equals(booking.getStatus()) || booking.getStripeCheckoutId() != null) {
+                event.setProcessedAt(Instant.now());
+                return null;
+            }
+            CheckoutDraft pending = draftOf(booking);
+            Instant replayableAt = pending.expiresAt().minus(STRIPE_MIN_CHECKOUT_LIFETIME);
+            if (Instant.now().isBefore(replayableAt)) {
+                // Long holds: a replay now could still be taken as a fresh create
+                event.setNextAttemptAt(replayableAt);
+                return null;
+            }
+            event.setAttempts(event.getAttempts() + 1);
+            return pending;
+        });
+        if (draft == null) {
             return;
         }
 
-        Event event;
         try {
-            event = Webhook.constructEvent(payload, sigHeader, stripeWebhookSecret);
-        } catch (SignatureVerificationException e) {
-            log.error("Stripe webhook signature verification failed", e);
-            throw new BadRequestException("Invalid webhook signature");
-        } catch (Exception e) {
-            log.error("Stripe webhook parsing failed", e);
-            throw new BadRequestException("Invalid webhook payload");
+            Session checkoutSession = createStripeCheckout(draft);
+            transactionTemplate.executeWithoutResult(tx -> attachCheckout(draft.bookingId(), checkoutSession.getId()));
+            log.info("Checkout {} attached to booking {} by outbox relay", checkoutSession.getId(), draft.bookingId());
+        } catch (InvalidRequestException e) {
+            // Stripe never created this checkout and refuses to create it this late
+            log.info("No checkout to recover for booking {}: {}", draft.bookingId(), e.getMessage());
+            transactionTemplate.executeWithoutResult(tx -> abandonCheckout(draft.bookingId(), e.getMessage()));
+        } catch (IdempotencyException e) {
+            // A checkout exists but the tour changed since; webhooks match it by metadata and the sweeper frees the seat
+            log.warn("Checkout for booking {} no longer matches its replay: {}", draft.bookingId(), e.getMessage());
+            transactionTemplate.executeWithoutResult(tx -> markOutboxProcessed(draft.bookingId(), e.getMessage()));
+        } catch (StripeException e) {
+            log.warn("Outbox checkout retry failed for booking {}: {}", draft.bookingId(), e.getMessage());
+            transactionTemplate.executeWithoutResult(tx -> {
+                BookingOutboxEvent event = outboxRepository.findById(eventId).orElseThrow();
+                if (event.getAttempts() >= MAX_CHECKOUT_ATTEMPTS) {
+                    abandonCheckout(draft.bookingId(), e.getMessage());
+                } else {
+                    event.setLastError(e.getMessage());
+                    event.setNextAttemptAt(Instant.now().plus(Duration.ofMinutes(1L << event.getAttempts())));
+                }
+            });
         }
+    }
 
-        if ("checkout.session.completed".equals(event.getType())) {
-            Session stripeSession = (Session) event.getDataObjectDeserializer()
-                    .getObject()
-                    .orElse(null);
+    private CheckoutDraft draftOf(Booking booking) {
+        CircuitSession session = booking.getCircuitSession();
+        return new CheckoutDraft(
+                booking.getId(),
+                session.getId(),
+                session.getCircuit().getId(),
+                session.getCircuit().getName(),
+                booking.getAmountMad(),
+                booking.getUser().getId(),
+                booking.getUser().getEmail(),
+                // The slack keeps the synchronous create above Stripe's minimum lifetime
+                booking.getCreatedAt().plus(getHoldDuration()).plus(CHECKOUT_CREATE_SLACK)
+        );
+    }
 
-            if (stripeSession == null) {
-                log.warn("Could not deserialize checkout session from webhook");
-                return;
+    /**
+     * Applies a checkout.session.completed or checkout.session.expired event from the webhook inbox.
+     */
+    @Transactional
+    public void applyCheckoutEvent(String type, String checkoutId, String paymentIntentId, Long metadataBookingId) {
+        findBookingForCheckout(checkoutId, metadataBookingId).ifPresent(booking -> {
+            if ("checkout.session.completed".equals(type)) {
+                confirmPaidBooking(booking, paymentIntentId, "Stripe webhook");
+            } else if ("checkout.session.expired".equals(type)) {
+                expireBooking(booking);
             }
+        });
+    }
 
-            String checkoutId = stripeSession.getId();
-            bookingRepository.findByStripeCheckoutId(checkoutId).ifPresent(booking -> {
-                booking.setStatus("CONFIRMED");
-                booking.setStripePaymentId(stripeSession.getPaymentIntent());
-                booking.setPaidAt(Instant.now());
-                bookingRepository.save(booking);
-                log.info("Booking {} confirmed via Stripe webhook", booking.getId());
-            });
+    /**
+     * One page of the user's booking history, newest first, read with a single projection query.
+     * PENDING bookings are settled by webhooks and BookingReconciler, not on page load.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<BookingResponse> getMyBookings(String userEmail, String cursor, Integer limit) {
+        if (limit != null && (limit < 1 || limit > MAX_HISTORY_PAGE_SIZE)) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_HISTORY_PAGE_SIZE);
         }
+        KeysetCursor before = KeysetCursor.decode(cursor);
+
+        // Without a limit the whole history is returned, as the dashboard expects
+        List<BookingResponse> rows = bookingRepository.findHistoryPage(
+                        userEmail,
+                        before != null ? before.at() : null,
+                        before != null ? before.id() : null,
+                        limit != null ? Limit.of(limit + 1) : Limit.unlimited())
+                .stream()
+                .map(this::toBookingResponse)
+                .toList();
+
+        if (limit == null || rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<BookingResponse> page = rows.subList(0, limit);
+        BookingResponse last = page.get(limit - 1);
+        return new CursorPage<>(page, new KeysetCursor(last.getCreatedAt(), last.getId()).encode());
     }
 
-    @Transactional
-    public List<BookingResponse> getMyBookings(String userEmail) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new NotFoundException("User not found"));
+    /**
+     * Booking for the post-payment page. If the webhook has not landed yet, Stripe is asked once,
+     * outside any transaction and at most once per booking every {@link #VERIFY_THROTTLE}.
+     */
+    public BookingResponse verifyAndGetBooking(String checkoutId, String userEmail) {
+        BookingResponse booking = transactionTemplate.execute(tx -> {
+            User user = userRepository.findByEmail(userEmail)
+                    .orElseThrow(() -> new NotFoundException("User not found"));
 
-        List<Booking> bookings = bookingRepository.findByUserIdOrderByCreatedAtDesc(user.getId());
-
-        // Auto-verify any PENDING bookings by checking Stripe
-        if (isConfigured()) {
-            for (Booking b : bookings) {
-                if ("PENDING".equals(b.getStatus()) && b.getStripeCheckoutId() != null) {
-                    try {
-                        Session stripeSession = Session.retrieve(b.getStripeCheckoutId());
-                        if ("complete".equals(stripeSession.getStatus())
-                                && "paid".equals(stripeSession.getPaymentStatus())) {
-                            b.setStatus("CONFIRMED");
-                            b.setStripePaymentId(stripeSession.getPaymentIntent());
-                            b.setPaidAt(Instant.now());
-                            bookingRepository.save(b);
-                            log.info("Booking {} confirmed via direct Stripe verification (my-bookings)", b.getId());
-                        }
-                    } catch (StripeException e) {
-                        log.warn("Could not verify Stripe session {}: {}", b.getStripeCheckoutId(), e.getMessage());
-                    }
-                }
+            Booking b = bookingRepository.findByStripeCheckoutId(checkoutId)
+                    .orElseThrow(() -> new NotFoundException("Booking not found"));
+
+            if (!b.getUser().getId().equals(user.getId())) {
+                throw new NotFoundException("Booking not found");
             }
+            return toBookingResponse(b);
+        });
+
+        if (!"PENDING".equals(booking.getStatus()) || !isConfigured()) {
+            return booking;
         }
 
-        return bookings.stream()
+        Instant now = Instant.now();
+        Boolean claimed = transactionTemplate.execute(tx ->
+                bookingRepository.markChecked(booking.getId(), now, now.minus(VERIFY_THROTTLE)) == 1);
+        if (!Boolean.TRUE.equals(claimed) || !reconcileBooking(booking.getId(), checkoutId)) {
+            return booking;
+        }
+        return transactionTemplate.execute(tx -> bookingRepository.findById(booking.getId())
                 .map(this::toBookingResponse)
-                .toList();
+                .orElse(booking));
     }
 
+    /**
+     * Claims up to {@code limit} PENDING bookings that have not been checked against Stripe
+     * within {@code recheckAfter}, stamping them so other nodes skip them.
+     */
     @Transactional
-    public BookingResponse verifyAndGetBooking(String checkoutId, String userEmail) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new NotFoundException("User not found"));
+    public List<BookingCheckoutView> claimBookingsToReconcile(Duration minAge, Duration recheckAfter, int limit) {
+        Instant now = Instant.now();
+        Instant checkedBefore = now.minus(recheckAfter);
+        return bookingRepository.findPendingToReconcile(now.minus(minAge), checkedBefore, Limit.of(limit))
+                .stream()
+                .filter(b -> bookingRepository.markChecked(b.getId(), now, checkedBefore) == 1)
+                .toList();
+    }
 
-        Booking booking = bookingRepository.findByStripeCheckoutId(checkoutId)
-                .orElseThrow(() -> new NotFoundException("Booking not found"));
+    /**
+     * Asks Stripe for the checkout state and applies it. Called with no transaction open.
+     * Returns true if the booking changed.
+     */
+    public boolean reconcileBooking(Long bookingId, String checkoutId) {
+        Session stripeSession;
+        try {
+            stripeSession = Session.retrieve(checkoutId);
+        } catch (StripeException e) {
+            log.warn("Could not verify Stripe session {}: {}", checkoutId, e.getMessage());
+            return false;
+        }
+
+        Boolean changed = transactionTemplate.execute(tx -> {
+            Booking booking = bookingRepository.findById(bookingId).orElse(null);
+            if (booking == null || !"PENDING".equals(booking.getStatus())) {
+                return false;
+            }
+            if ("complete".equals(stripeSession.getStatus()) && "paid".equals(stripeSession.getPaymentStatus())) {
+                confirmPaidBooking(booking, stripeSession.getPaymentIntent(), "Stripe reconciliation");
+            } else if ("expired".equals(stripeSession.getStatus())) {
+                expireBooking(booking);
+            }
+            return !"PENDING".equals(booking.getStatus());
+        });
+        return Boolean.TRUE.equals(changed);
+    }
+
+    /**
+     * Matches a Stripe checkout to its booking, falling back to the booking id in the metadata
+     * when the checkout was created but never attached (see the outbox relay).
+     */
+    private Optional<Booking> findBookingForCheckout(String checkoutId, Long metadataBookingId) {
+        Optional<Booking> attached = bookingRepository.findByStripeCheckoutId(checkoutId);
+        if (attached.isPresent() || metadataBookingId == null) {
+            return attached;
+        }
+        return bookingRepository.findById(metadataBookingId)
+                .filter(b -> b.getStripeCheckoutId() == null)
+                .map(b -> {
+                    b.setStripeCheckoutId(checkoutId);
+                    markOutboxProcessed(b.getId(), null);
+                    return b;
+                });
+    }
 
-        if (!booking.getUser().getId().equals(user.getId())) {
-            throw new NotFoundException("Booking not found");
+    /**
+     * Moves a paid booking to CONFIRMED exactly once, however many paths report the payment.
+     * A booking whose hold already expired is confirmed only if a seat can still be taken.
+     */
+    private void confirmPaidBooking(Booking booking, String paymentIntentId, String source) {
+        Instant paidAt = Instant.now();
+
+        if (bookingRepository.confirm(booking.getId(), "PENDING", paymentIntentId, paidAt) == 1) {
+            markConfirmed(booking, paymentIntentId, paidAt);
+            bookingStatsRollup.recordConfirmed(booking, paidAt);
+            log.info("Booking {} confirmed via {}", booking.getId(), source);
+            return;
         }
 
-        // If still PENDING, check Stripe directly to confirm payment
-        if ("PENDING".equals(booking.getStatus()) && isConfigured()) {
-            try {
-                Session stripeSession = Session.retrieve(checkoutId);
-                if ("complete".equals(stripeSession.getStatus())
-                        && "paid".equals(stripeSession.getPaymentStatus())) {
-                    booking.setStatus("CONFIRMED");
-                    booking.setStripePaymentId(stripeSession.getPaymentIntent());
-                    booking.setPaidAt(Instant.now());
-                    bookingRepository.save(booking);
-                    log.info("Booking {} confirmed via direct Stripe verification", booking.getId());
-                }
-            } catch (StripeException e) {
-                log.warn("Could not verify Stripe session {}: {}", checkoutId, e.getMessage());
+        String current = bookingRepository.findStatusById(booking.getId()).orElse(null);
+        if (!"EXPIRED".equals(current)) {
+            return;
+        }
+
+        // Payment landed after the hold was released; take the seat back if one is left
+        Long sessionId = booking.getCircuitSession().getId();
+        boolean retried = bookingRepository.existsByCircuitSessionIdAndUserIdAndStatusNot(
+                sessionId, booking.getUser().getId(), "EXPIRED");
+        if (!retried && circuitSessionRepository.reserveSeat(sessionId) == 1) {
+            if (bookingRepository.confirm(booking.getId(), "EXPIRED", paymentIntentId, paidAt) == 1) {
+                markConfirmed(booking, paymentIntentId, paidAt);
+                bookingStatsRollup.recordConfirmed(booking, paidAt);
+                log.info("Expired booking {} confirmed via {}", booking.getId(), source);
+                return;
+            }
+            circuitSessionRepository.releaseSeat(sessionId);
+        }
+        log.error("Booking {} was paid after its hold expired and no seat is left; payment {} needs a refund",
+                booking.getId(), paymentIntentId);
+    }
+
+    private void markConfirmed(Booking booking, String paymentIntentId, Instant paidAt) {
+        // Keep the managed entity in line with the row so the response and flush agree
+        booking.setStatus("CONFIRMED");
+        booking.setStripePaymentId(paymentIntentId);
+        booking.setPaidAt(paidAt);
+    }
+
+    /**
+     * Releases the seat held by a PENDING booking. Safe to call repeatedly.
+     */
+    private void expireBooking(Booking booking) {
+        if (bookingRepository.expireIfPending(booking.getId()) == 1) {
+            circuitSessionRepository.releaseSeat(booking.getCircuitSession().getId());
+            booking.setStatus("EXPIRED");
+            log.info("Booking {} expired, seat released", booking.getId());
+        }
+    }
+
+    /**
+     * Expires one batch of PENDING bookings created before the cutoff and gives their seats back.
+     * Returns the number of bookings looked at, so callers can loop until a short batch.
+     */
+    @Transactional
+    public int expireHoldsCreatedBefore(Instant cutoff, int batchSize) {
+        List<BookingHoldView> holds = bookingRepository.findPendingCreatedBefore(cutoff, Limit.of(batchSize));
+
+        // A booking confirmed or expired concurrently fails the conditional update and keeps its seat state
+        Map<Long, Integer> releasedBySession = new HashMap<>();
+        for (BookingHoldView hold : holds) {
+            if (bookingRepository.expireIfPending(hold.getId()) == 1) {
+                releasedBySession.merge(hold.getSessionId(), 1, Integer::sum);
             }
         }
+        releasedBySession.forEach(circuitSessionRepository::releaseSeats);
 
-        return toBookingResponse(booking);
+        if (!releasedBySession.isEmpty()) {
+            log.info("Released {} expired seat holds across {} sessions",
+                    releasedBySession.values().stream().mapToInt(Integer::intValue).sum(),
+                    releasedBySession.size());
+        }
+        return holds.size();
+    }
+
+    private BookingResponse toBookingResponse(BookingHistoryView v) {
+        BookingResponse r = new BookingResponse();
+        r.setId(v.getId());
+        r.setCircuitSessionId(v.getCircuitSessionId());
+        r.setCircuitId(v.getCircuitId());
+        r.setTourName(v.getTourName());
+        r.setSessionStartDateTime(v.getSessionStartDateTime());
+        r.setAmountMad(v.getAmountMad());
+        r.setStatus(v.getStatus());
+        r.setCreatedAt(v.getCreatedAt());
+        r.setPaidAt(v.getPaidAt());
+        return r;
     }
 
     private BookingResponse toBookingResponse(Booking b) {
@@ -284,4 +593,16 @@ public class BookingService {
         r.setPaidAt(b.getPaidAt());
         return r;
     }
+
+    private record CheckoutDraft(
+            Long bookingId,
+            Long circuitSessionId,
+            Long circuitId,
+            String tourName,
+            BigDecimal amountMad,
+            Long userId,
+            String customerEmail,
+            Instant expiresAt
+    ) {
+    }
 }
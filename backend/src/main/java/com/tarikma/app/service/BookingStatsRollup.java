@@ -0,0 +1,51 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.entity.Booking;
+import com.tarikma.app.entity.Circuit;
+import com.tarikma.app.repository.CircuitDailyStatRepository;
+import com.tarikma.app.repository.GuideDailyStatRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Keeps the per-guide and per-circuit daily rollups in step with booking confirmations.
+ * Days are UTC dates of the payment time.
+ */
+@Component
+public class BookingStatsRollup {
+
+    // Every booking is for a single seat today
+    private static final int SEATS_PER_BOOKING = 1;
+
+    private final GuideDailyStatRepository guideDailyStatRepository;
+    private final CircuitDailyStatRepository circuitDailyStatRepository;
+
+    public BookingStatsRollup(
+            GuideDailyStatRepository guideDailyStatRepository,
+            CircuitDailyStatRepository circuitDailyStatRepository
+    ) {
+        this.guideDailyStatRepository = guideDailyStatRepository;
+        this.circuitDailyStatRepository = circuitDailyStatRepository;
+    }
+
+    /**
+     * Must run in the transaction that moved the booking to CONFIRMED, so the rollup
+     * is counted exactly once alongside it.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordConfirmed(Booking booking, Instant paidAt) {
+        Circuit circuit = booking.getCircuitSession().getCircuit();
+        Long guideId = circuit.getCreatedBy().getId();
+        LocalDate day = LocalDate.ofInstant(paidAt, ZoneOffset.UTC);
+
+        circuitDailyStatRepository.addConfirmedBooking(
+                circuit.getId(), day, guideId, booking.getAmountMad(), SEATS_PER_BOOKING);
+        guideDailyStatRepository.addConfirmedBooking(
+                guideId, day, booking.getAmountMad(), SEATS_PER_BOOKING);
+    }
+}
@@ -0,0 +1,14 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.entity.Circuit;
+import com.tarikma.app.entity.CircuitRoute;
+import com.tarikma.app.entity.CircuitStop;
+
+import java.util.List;
+
+/**
+ * A circuit with its stops (places initialized, in sort-key order) and routes, as loaded by
+ * {@link CircuitAggregateLoader}.
+ */
+public record CircuitAggregate(Circuit circuit, List<CircuitStop> stops, List<CircuitRoute> routes) {
+}
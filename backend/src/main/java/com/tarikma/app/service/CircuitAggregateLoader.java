@@ -0,0 +1,35 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.entity.CircuitStop;
+import com.tarikma.app.repository.CircuitRepository;
+import com.tarikma.app.repository.CircuitStopRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Loads everything the circuit editor and tour detail render in two queries: the circuit with its
+ * city and routes, then the stops with their places. Route ends resolve to the loaded stops, so
+ * building responses triggers no further lazy loads. Must run inside the caller's transaction.
+ */
+@Component
+public class CircuitAggregateLoader {
+
+    private final CircuitRepository circuitRepository;
+    private final CircuitStopRepository circuitStopRepository;
+
+    public CircuitAggregateLoader(CircuitRepository circuitRepository, CircuitStopRepository circuitStopRepository) {
+        this.circuitRepository = circuitRepository;
+        this.circuitStopRepository = circuitStopRepository;
+    }
+
+    public Optional<CircuitAggregate> load(Long circuitId) {
+        return circuitRepository.findWithRoutesById(circuitId)
+                .map(c -> new CircuitAggregate(c, loadStops(circuitId), List.copyOf(c.getRoutes())));
+    }
+
+    public List<CircuitStop> loadStops(Long circuitId) {
+        return circuitStopRepository.findWithPlacesByCircuitId(circuitId);
+    }
+}
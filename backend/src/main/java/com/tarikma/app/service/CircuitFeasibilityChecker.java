@@ -0,0 +1,174 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.dto.circuit.CircuitPlanningWarningResponse;
+import com.tarikma.app.entity.City;
+import com.tarikma.app.entity.CircuitRoute;
+import com.tarikma.app.entity.CircuitStop;
+import com.tarikma.app.entity.Place;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Walks each day of a circuit in stop order, adding stop durations and travel time between
+ * consecutive stops, and reports schedules that cannot be kept, days with too much travel and
+ * stops far from the city. Travel uses the stored route when it has a duration, otherwise the
+ * city's {@link TravelMatrix}, which accounts for transport options between the places.
+ */
+@Component
+public class CircuitFeasibilityChecker {
+
+    private static final int DEFAULT_DAY_START = 9 * 60;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final TravelMatrixService travelMatrixService;
+    private final int maxDailyTravelMinutes;
+    private final double cityRadiusKm;
+
+    public CircuitFeasibilityChecker(
+            TravelMatrixService travelMatrixService,
+            @Value("${app.planning.max-daily-travel-minutes:240}") int maxDailyTravelMinutes,
+            @Value("${app.planning.city-radius-km:60}") double cityRadiusKm
+    ) {
+        this.travelMatrixService = travelMatrixService;
+        this.maxDailyTravelMinutes = maxDailyTravelMinutes;
+        this.cityRadiusKm = cityRadiusKm;
+    }
+
+    public List<CircuitPlanningWarningResponse> check(City city, List<CircuitStop> orderedStops, List<CircuitRoute> routes) {
+        List<CircuitPlanningWarningResponse> warnings = new ArrayList<>();
+
+        Map<Leg, CircuitRoute> routesByLeg = new HashMap<>();
+        for (CircuitRoute r : routes) {
+            routesByLeg.put(new Leg(r.getFromStop().getId(), r.getToStop().getId()), r);
+        }
+
+        Map<Integer, List<CircuitStop>> byDay = new TreeMap<>();
+        for (CircuitStop s : orderedStops) {
+            checkDistanceFromCity(city, s, warnings);
+            if (s.getDayNumber() != null) {
+                byDay.computeIfAbsent(s.getDayNumber(), d -> new ArrayList<>()).add(s);
+            }
+        }
+
+        TravelMatrix matrix = travelMatrixService.forCity(city.getId());
+        for (Map.Entry<Integer, List<CircuitStop>> day : byDay.entrySet()) {
+            simulateDay(day.getKey(), day.getValue(), routesByLeg, matrix, warnings);
+        }
+        return warnings;
+    }
+
+    private void simulateDay(int dayNumber, List<CircuitStop> stops, Map<Leg, CircuitRoute> routesByLeg,
+                             TravelMatrix matrix, List<CircuitPlanningWarningResponse> warnings) {
+        int clock = DEFAULT_DAY_START;
+        int travelMinutes = 0;
+
+        for (int i = 0; i < stops.size(); i++) {
+            CircuitStop s = stops.get(i);
+
+            if (i > 0) {
+                int leg = legMinutes(stops.get(i - 1), s, routesByLeg, matrix);
+                travelMinutes += leg;
+                clock += leg;
+            } else if (s.getStartTime() != null) {
+                clock = toMinutes(s.getStartTime());
+            }
+
+            if (s.getStartTime() != null) {
+                int start = toMinutes(s.getStartTime());
+                if (clock > start) {
+                    warnings.add(warning(
+                            "SCHEDULE_INFEASIBLE",
+                            "Earliest arrival is " + format(clock) + ", after the planned start " + format(start),
+                            dayNumber,
+                            s.getId()
+                    ));
+                }
+                clock = Math.max(clock, start);
+            }
+
+            if (s.getStartTime() != null && s.getEndTime() != null) {
+                clock = Math.max(clock, toMinutes(s.getEndTime()));
+            } else if (s.getDurationMinutes() != null) {
+                clock += s.getDurationMinutes();
+            }
+        }
+
+        if (clock > MINUTES_PER_DAY) {
+            warnings.add(warning(
+                    "DAY_OVERRUN",
+                    "Day " + dayNumber + " runs until " + format(clock),
+                    dayNumber,
+                    null
+            ));
+        }
+
+        if (travelMinutes > maxDailyTravelMinutes) {
+            warnings.add(warning(
+                    "EXCESSIVE_TRAVEL",
+                    "About " + travelMinutes / 60 + " h " + travelMinutes % 60 + " min of travel on day " + dayNumber,
+                    dayNumber,
+                    null
+            ));
+        }
+    }
+
+    private int legMinutes(CircuitStop from, CircuitStop to, Map<Leg, CircuitRoute> routesByLeg, TravelMatrix matrix) {
+        CircuitRoute route = routesByLeg.get(new Leg(from.getId(), to.getId()));
+        if (route != null && route.getDurationMinutes() != null) {
+            return route.getDurationMinutes();
+        }
+
+        // Places from other cities are not in the matrix
+        float minutes = matrix.minutesBetween(from.getPlace().getId(), to.getPlace().getId());
+        return Float.isNaN(minutes)
+                ? GeoDistance.estimatedTravelMinutes(from.getPlace(), to.getPlace())
+                : (int) Math.ceil(minutes);
+    }
+
+    private void checkDistanceFromCity(City city, CircuitStop s, List<CircuitPlanningWarningResponse> warnings) {
+        Place p = s.getPlace();
+        if (city.getLatitude() == null || city.getLongitude() == null || p.getLatitude() == null || p.getLongitude() == null) {
+            return;
+        }
+
+        double km = GeoDistance.haversineKm(city.getLatitude(), city.getLongitude(), p.getLatitude(), p.getLongitude());
+        if (km > cityRadiusKm) {
+            warnings.add(warning(
+                    "FAR_FROM_CITY",
+                    String.format("%s is %.0f km from the city centre", p.getName(), km),
+                    s.getDayNumber(),
+                    s.getId()
+            ));
+        }
+    }
+
+    private static int toMinutes(LocalTime t) {
+        return t.getHour() * 60 + t.getMinute();
+    }
+
+    private static String format(int minutes) {
+        String hhmm = String.format("%02d:%02d", (minutes / 60) % 24, minutes % 60);
+        int days = minutes / MINUTES_PER_DAY;
+        return days == 0 ? hhmm : hhmm + " (+" + days + " day)";
+    }
+
+    private static CircuitPlanningWarningResponse warning(String code, String message, Integer dayNumber, Long stopId) {
+        CircuitPlanningWarningResponse r = new CircuitPlanningWarningResponse();
+        r.setCode(code);
+        r.setMessage(message);
+        r.setSeverity("WARNING");
+        r.setDayNumber(dayNumber);
+        r.setStopId(stopId);
+        return r;
+    }
+
+    private record Leg(Long fromStopId, Long toStopId) {
+    }
+}
@@ -0,0 +1,185 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.entity.Circuit;
+import com.tarikma.app.entity.CircuitRoute;
+import com.tarikma.app.entity.CircuitStop;
+import com.tarikma.app.entity.Place;
+import com.tarikma.app.entity.TransportOption;
+import com.tarikma.app.repository.CircuitRouteRepository;
+import com.tarikma.app.repository.TransportOptionRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps travel data on the legs between consecutive stops. A leg takes the fastest transport option
+ * between its two places, or else a mode speed over the great-circle distance: walking for short hops,
+ * taxi otherwise. Routes the user entered are never touched, and server routes that no longer join
+ * consecutive stops are dropped. Runs in the caller's transaction, after stop changes are flushed.
+ */
+@Component
+public class CircuitRouteFiller {
+
+    private static final String SHORT_HOP_MODE = "WALK";
+    private static final String DEFAULT_MODE = "TAXI";
+
+    private final CircuitRouteRepository circuitRouteRepository;
+    private final TransportOptionRepository transportOptionRepository;
+
+    public CircuitRouteFiller(CircuitRouteRepository circuitRouteRepository,
+                              TransportOptionRepository transportOptionRepository) {
+        this.circuitRouteRepository = circuitRouteRepository;
+        this.transportOptionRepository = transportOptionRepository;
+    }
+
+    private record StopPair(Long fromId, Long toId) {
+    }
+
+    /**
+     * Computes only the legs that have no route yet, so an edit pays for the legs it created.
+     * Returns whether any route was added, changed or removed.
+     */
+    public boolean fillMissing(Circuit circuit, List<CircuitStop> ordered) {
+        return sync(circuit, ordered, false);
+    }
+
+    /**
+     * Also recomputes every server route, picking up transport option and place changes.
+     */
+    public boolean recomputeAll(Circuit circuit, List<CircuitStop> ordered) {
+        return sync(circuit, ordered, true);
+    }
+
+    private boolean sync(Circuit circuit, List<CircuitStop> ordered, boolean recompute) {
+        Map<StopPair, CircuitRoute> existing = new HashMap<>();
+        for (CircuitRoute r : circuitRouteRepository.findByCircuitId(circuit.getId())) {
+            existing.put(new StopPair(r.getFromStop().getId(), r.getToStop().getId()), r);
+        }
+
+        Set<StopPair> legs = new HashSet<>();
+        List<CircuitStop[]> pending = new ArrayList<>();
+        for (int i = 1; i < ordered.size(); i++) {
+            CircuitStop from = ordered.get(i - 1);
+            CircuitStop to = ordered.get(i);
+            StopPair pair = new StopPair(from.getId(), to.getId());
+            legs.add(pair);
+
+            CircuitRoute route = existing.get(pair);
+            if (route == null || (recompute && route.isAutoComputed())) {
+                pending.add(new CircuitStop[]{from, to});
+            }
+        }
+
+        List<CircuitRoute> stale = new ArrayList<>();
+        for (Map.Entry<StopPair, CircuitRoute> e : existing.entrySet()) {
+            if (e.getValue().isAutoComputed() && !legs.contains(e.getKey())) {
+                stale.add(e.getValue());
+            }
+        }
+        circuitRouteRepository.deleteAll(stale);
+        if (pending.isEmpty()) {
+            return !stale.isEmpty();
+        }
+
+        Map<TravelMatrix.PlacePair, TransportOption> options = fastestOptions(pending);
+        List<CircuitRoute> changed = new ArrayList<>();
+        for (CircuitStop[] leg : pending) {
+            CircuitStop from = leg[0];
+            CircuitStop to = leg[1];
+            CircuitRoute route = existing.get(new StopPair(from.getId(), to.getId()));
+            boolean added = route == null;
+            if (added) {
+                route = new CircuitRoute();
+                route.setCircuit(circuit);
+                route.setFromStop(from);
+                route.setToStop(to);
+                route.setAutoComputed(true);
+            }
+
+            List<Object> before = travelOf(route);
+            TransportOption option = options.get(
+                    new TravelMatrix.PlacePair(from.getPlace().getId(), to.getPlace().getId()));
+            boolean hasData = fill(route, from.getPlace(), to.getPlace(), option);
+            if (added ? hasData : !travelOf(route).equals(before)) {
+                changed.add(route);
+            }
+        }
+        circuitRouteRepository.saveAll(changed);
+        return !stale.isEmpty() || !changed.isEmpty();
+    }
+
+    private static List<Object> travelOf(CircuitRoute r) {
+        return Arrays.asList(
+                r.getTransportOption() == null ? null : r.getTransportOption().getId(),
+                r.getTransportMode(), r.getDistanceKm(), r.getDurationMinutes());
+    }
+
+    // Returns false when the leg has neither an option nor coordinates to estimate from
+    private static boolean fill(CircuitRoute route, Place from, Place to, TransportOption option) {
+        Double roadKm = hasCoordinates(from) && hasCoordinates(to)
+                ? GeoDistance.roadKm(GeoDistance.placeKm(from, to))
+                : null;
+
+        String mode;
+        Double km;
+        Integer minutes;
+        if (option != null) {
+            mode = option.getMode();
+            km = option.getDistanceKm() != null ? option.getDistanceKm() : roadKm;
+            minutes = option.getDurationMinutes();
+        } else {
+            mode = roadKm == null ? null : GeoDistance.walkable(roadKm) ? SHORT_HOP_MODE : DEFAULT_MODE;
+            km = roadKm;
+            minutes = null;
+        }
+        if (minutes == null && km != null) {
+            minutes = GeoDistance.modeTravelMinutes(mode, km);
+        }
+
+        route.setTransportOption(option);
+        route.setTransportMode(mode);
+        route.setDistanceKm(km == null ? null : Math.round(km * 100) / 100.0);
+        route.setDurationMinutes(minutes);
+        return option != null || km != null;
+    }
+
+    // One query for every pending leg; each direction keeps its fastest option
+    private Map<TravelMatrix.PlacePair, TransportOption> fastestOptions(List<CircuitStop[]> legs) {
+        Set<Long> placeIds = new HashSet<>();
+        for (CircuitStop[] leg : legs) {
+            placeIds.add(leg[0].getPlace().getId());
+            placeIds.add(leg[1].getPlace().getId());
+        }
+
+        Map<TravelMatrix.PlacePair, TransportOption> fastest = new HashMap<>();
+        for (TransportOption o : transportOptionRepository.findBetweenPlaces(placeIds)) {
+            long from = o.getFromPlace().getId();
+            long to = o.getToPlace().getId();
+            fastest.merge(new TravelMatrix.PlacePair(from, to), o, CircuitRouteFiller::faster);
+            if (o.isBidirectional()) {
+                fastest.merge(new TravelMatrix.PlacePair(to, from), o, CircuitRouteFiller::faster);
+            }
+        }
+        return fastest;
+    }
+
+    private static TransportOption faster(TransportOption a, TransportOption b) {
+        return minutes(b) < minutes(a) ? b : a;
+    }
+
+    private static double minutes(TransportOption o) {
+        if (o.getDurationMinutes() != null) return o.getDurationMinutes();
+        if (o.getDistanceKm() != null) return GeoDistance.modeTravelMinutes(o.getMode(), o.getDistanceKm());
+        return Double.MAX_VALUE;
+    }
+
+    private static boolean hasCoordinates(Place p) {
+        return p.getLatitude() != null && p.getLongitude() != null;
+    }
+}
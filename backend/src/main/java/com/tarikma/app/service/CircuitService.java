@@ -2,28 +2,38 @@ package com.tarikma.app.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tarikma.app.dto.CursorPage;
 import com.tarikma.app.dto.circuit.*;
 import com.tarikma.app.entity.*;
 import com.tarikma.app.exception.BadRequestException;
 import com.tarikma.app.exception.NotFoundException;
 import com.tarikma.app.repository.*;
+import com.tarikma.app.repository.projection.CircuitSummaryView;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 @Service
 public class CircuitService {
 
     private static final Logger log = LoggerFactory.getLogger(CircuitService.class);
+    private static final int MAX_CIRCUIT_PAGE_SIZE = 100;
 
     private final CircuitRepository circuitRepository;
     private final CircuitStopRepository circuitStopRepository;
@@ -35,6 +45,14 @@ public class CircuitService {
     private final AiService aiService;
     private final WeatherService weatherService;
     private final CircuitSessionRepository circuitSessionRepository;
+    private final TourCatalogService tourCatalogService;
+    private final CircuitFeasibilityChecker feasibilityChecker;
+    private final PlanningWarningsCache planningWarningsCache;
+    private final CircuitAggregateLoader circuitAggregateLoader;
+    private final TravelMatrixService travelMatrixService;
+    private final CircuitRouteFiller circuitRouteFiller;
+    private final TransitGraphService transitGraphService;
+    private final TransactionTemplate transactionTemplate;
 
     public CircuitService(
             CircuitRepository circuitRepository,
@@ -46,7 +64,15 @@ public class CircuitService {
             UserRepository userRepository,
             AiService aiService,
             WeatherService weatherService,
-            CircuitSessionRepository circuitSessionRepository
+            CircuitSessionRepository circuitSessionRepository,
+            TourCatalogService tourCatalogService,
+            CircuitFeasibilityChecker feasibilityChecker,
+            PlanningWarningsCache planningWarningsCache,
+            CircuitAggregateLoader circuitAggregateLoader,
+            TravelMatrixService travelMatrixService,
+            CircuitRouteFiller circuitRouteFiller,
+            TransitGraphService transitGraphService,
+            TransactionTemplate transactionTemplate
     ) {
         this.circuitRepository = circuitRepository;
         this.circuitStopRepository = circuitStopRepository;
@@ -58,43 +84,66 @@ public class CircuitService {
         this.aiService = aiService;
         this.weatherService = weatherService;
         this.circuitSessionRepository = circuitSessionRepository;
+        this.tourCatalogService = tourCatalogService;
+        this.feasibilityChecker = feasibilityChecker;
+        this.planningWarningsCache = planningWarningsCache;
+        this.circuitAggregateLoader = circuitAggregateLoader;
+        this.travelMatrixService = travelMatrixService;
+        this.circuitRouteFiller = circuitRouteFiller;
+        this.transitGraphService = transitGraphService;
+        this.transactionTemplate = transactionTemplate;
     }
 
     @Transactional(readOnly = true)
-    public List<CircuitSummaryResponse> listMyCircuits(String userEmail, Long cityId) {
+    public CursorPage<CircuitSummaryResponse> listMyCircuits(String userEmail, Long cityId, String cursor, Integer limit) {
+        if (limit != null && (limit < 1 || limit > MAX_CIRCUIT_PAGE_SIZE)) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_CIRCUIT_PAGE_SIZE);
+        }
+        KeysetCursor before = KeysetCursor.decode(cursor);
         User user = findUserByEmailOrThrow(userEmail);
 
-        List<Circuit> circuits = cityId == null
-                ? circuitRepository.findByCreatedById(user.getId())
-                : circuitRepository.findByCreatedByIdAndCityId(user.getId(), cityId);
-
-        return circuits.stream()
-                .sorted(Comparator.comparing(Circuit::getCreatedAt).reversed())
-                .map(c -> toCircuitSummaryResponse(c, circuitStopRepository.countByCircuitId(c.getId())))
+        // Without a limit the whole list is returned, as the editor landing page expects
+        List<CircuitSummaryResponse> rows = circuitRepository.findSummaryPage(
+                        user.getId(),
+                        cityId,
+                        before != null ? before.at() : null,
+                        before != null ? before.id() : null,
+                        limit != null ? Limit.of(limit + 1) : Limit.unlimited())
+                .stream()
+                .map(this::toCircuitSummaryResponse)
                 .toList();
+
+        if (limit == null || rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<CircuitSummaryResponse> page = rows.subList(0, limit);
+        CircuitSummaryResponse last = page.get(limit - 1);
+        return new CursorPage<>(page, new KeysetCursor(last.getCreatedAt(), last.getId()).encode());
     }
 
     @Transactional(readOnly = true)
     public CircuitResponse getMyCircuit(Long circuitId, String userEmail) {
         User user = findUserByEmailOrThrow(userEmail);
-        Circuit circuit = findOwnedCircuitOrThrow(circuitId, user.getId());
+        CircuitAggregate aggregate = circuitAggregateLoader.load(circuitId)
+                .filter(a -> a.circuit().getCreatedBy().getId().equals(user.getId()))
+                .orElseThrow(() -> new NotFoundException("Circuit not found"));
 
-        CircuitResponse r = toCircuitResponseBase(circuit);
-        r.setStops(circuitStopRepository.findByCircuitIdOrderByPositionAsc(circuitId).stream()
-                .map(this::toStopResponse)
-                .toList());
-        r.setRoutes(circuitRouteRepository.findByCircuitId(circuitId).stream()
-                .map(this::toRouteResponse)
-                .toList());
-        return r;
+        return toCircuitResponse(aggregate);
     }
 
     @Transactional(readOnly = true)
     public List<CircuitPlanningWarningResponse> getMyCircuitPlanningWarnings(Long circuitId, String userEmail) {
         User user = findUserByEmailOrThrow(userEmail);
-        findOwnedCircuitOrThrow(circuitId, user.getId());
+        Circuit circuit = findOwnedCircuitOrThrow(circuitId, user.getId());
 
-        List<CircuitStop> stops = circuitStopRepository.findByCircuitIdOrderByPositionAsc(circuitId);
+        // The editor polls this; recompute only after the circuit's stops or routes changed
+        return planningWarningsCache.get(circuitId, circuit.getRevision(), () -> computePlanningWarnings(circuit));
+    }
+
+    private List<CircuitPlanningWarningResponse> computePlanningWarnings(Circuit circuit) {
+        CircuitAggregate aggregate = circuitAggregateLoader.load(circuit.getId())
+                .orElseThrow(() -> new NotFoundException("Circuit not found"));
+        List<CircuitStop> stops = aggregate.stops();
 
         List<CircuitPlanningWarningResponse> warnings = new ArrayList<>();
         Map<Integer, List<CircuitStop>> byDay = new TreeMap<>();
@@ -195,6 +244,8 @@ public class CircuitService {
             }
         }
 
+        warnings.addAll(feasibilityChecker.check(circuit.getCity(), stops, aggregate.routes()));
+
         warnings.sort(Comparator
                 .comparing(CircuitPlanningWarningResponse::getDayNumber, Comparator.nullsLast(Integer::compareTo))
                 .thenComparing(CircuitPlanningWarningResponse::getStopId, Comparator.nullsLast(Long::compareTo))
@@ -216,6 +267,7 @@ public class CircuitService {
         circuit.setCreatedBy(user);
 
         circuit = circuitRepository.save(circuit);
+        tourCatalogService.refresh(circuit.getId());
         return toCircuitResponseBase(circuit);
     }
 
@@ -237,6 +289,7 @@ public class CircuitService {
         }
 
         circuit = circuitRepository.save(circuit);
+        tourCatalogService.refresh(circuit.getId());
         return toCircuitResponseBase(circuit);
     }
 
@@ -244,13 +297,15 @@ public class CircuitService {
     public void deleteCircuit(Long circuitId, String userEmail) {
         User user = findUserByEmailOrThrow(userEmail);
         Circuit circuit = findOwnedCircuitOrThrow(circuitId, user.getId());
+        Long cityId = circuit.getCity().getId();
         circuitRepository.delete(circuit);
+        tourCatalogService.cityListingChanged(cityId);
     }
 
     @Transactional
     public CircuitResponse addStop(Long circuitId, AddCircuitStopRequest req, String userEmail) {
         User user = findUserByEmailOrThrow(userEmail);
-        Circuit circuit = findOwnedCircuitOrThrow(circuitId, user.getId());
+        Circuit circuit = findOwnedCircuitForUpdateOrThrow(circuitId, user.getId());
         Place place = findPlaceOrThrow(req.getPlaceId());
 
         if (!place.getCity().getId().equals(circuit.getCity().getId())) {
@@ -261,16 +316,13 @@ public class CircuitService {
             throw new BadRequestException("This place is already a stop in the circuit");
         }
 
-        int targetPosition = resolveTargetPositionForInsert(circuitId, req.getPosition());
-
-        if (req.getPosition() != null) {
-            shiftPositionsForInsert(circuitId, targetPosition);
+        if (req.getPosition() != null && req.getPosition() <= 0) {
+            throw new BadRequestException("Position must be > 0");
         }
 
         CircuitStop stop = new CircuitStop();
         stop.setCircuit(circuit);
         stop.setPlace(place);
-        stop.setPosition(targetPosition);
 
         Integer dayNumber = req.getDayNumber();
         String stopKind = normalizeStopKind(req.getStopKind());
@@ -288,7 +340,11 @@ public class CircuitService {
         stop.setEndTime(req.getEndTime());
         stop.setDurationMinutes(req.getDurationMinutes());
         stop.setNotes(req.getNotes());
+        placeAtPosition(circuitId, stop, req.getPosition());
         circuitStopRepository.save(stop);
+        fillRouteGaps(circuit);
+        circuitRepository.incrementRevision(circuitId);
+        tourCatalogService.refresh(circuitId);
 
         return getMyCircuit(circuitId, userEmail);
     }
@@ -296,7 +352,11 @@ public class CircuitService {
     @Transactional
     public CircuitResponse updateStop(Long circuitId, Long stopId, UpdateCircuitStopRequest req, String userEmail) {
         User user = findUserByEmailOrThrow(userEmail);
-        findOwnedCircuitOrThrow(circuitId, user.getId());
+        if (req.getPosition() != null) {
+            findOwnedCircuitForUpdateOrThrow(circuitId, user.getId());
+        } else {
+            findOwnedCircuitOrThrow(circuitId, user.getId());
+        }
 
         CircuitStop stop = findStopOrThrow(stopId);
         if (!stop.getCircuit().getId().equals(circuitId)) {
@@ -343,10 +403,13 @@ public class CircuitService {
         if (req.getPosition() != null) {
             int newPos = req.getPosition();
             if (newPos <= 0) throw new BadRequestException("Position must be > 0");
-            repositionStop(circuitId, stop, newPos);
-        } else {
-            circuitStopRepository.save(stop);
+            placeAtPosition(circuitId, stop, newPos);
+        }
+        circuitStopRepository.save(stop);
+        if (req.getPosition() != null) {
+            fillRouteGaps(stop.getCircuit());
         }
+        circuitRepository.incrementRevision(circuitId);
 
         return getMyCircuit(circuitId, userEmail);
     }
@@ -354,26 +417,125 @@ public class CircuitService {
     @Transactional
     public CircuitResponse deleteStop(Long circuitId, Long stopId, String userEmail) {
         User user = findUserByEmailOrThrow(userEmail);
-        findOwnedCircuitOrThrow(circuitId, user.getId());
+        Circuit circuit = findOwnedCircuitForUpdateOrThrow(circuitId, user.getId());
 
         CircuitStop stop = findStopOrThrow(stopId);
         if (!stop.getCircuit().getId().equals(circuitId)) {
             throw new NotFoundException("Circuit stop not found");
         }
 
-        int removedPos = stop.getPosition();
+        // Remaining sort keys stay ordered, so nothing else is rewritten
         circuitStopRepository.delete(stop);
+        fillRouteGaps(circuit);
+        circuitRepository.incrementRevision(circuitId);
+        tourCatalogService.refresh(circuitId);
 
-        List<CircuitStop> toShift = circuitStopRepository.findByCircuitIdOrderByPositionAsc(circuitId).stream()
-                .filter(s -> s.getPosition() > removedPos)
-                .toList();
+        return getMyCircuit(circuitId, userEmail);
+    }
 
-        for (CircuitStop s : toShift) {
-            s.setPosition(s.getPosition() - 1);
+    /**
+     * Applies a list of ADD / MOVE / UPDATE / DELETE operations to a circuit's stops in one transaction.
+     * Operations run in order against the stop list loaded once; sort keys are then assigned in a single
+     * pass that only rewrites stops whose relative order changed, and all changes go out in one flush.
+     * Any invalid operation rolls back the batch.
+     */
+    @Transactional
+    public CircuitResponse applyStopOperations(Long circuitId, CircuitStopBatchRequest req, String userEmail) {
+        User user = findUserByEmailOrThrow(userEmail);
+        Circuit circuit = findOwnedCircuitForUpdateOrThrow(circuitId, user.getId());
+
+        List<CircuitStop> ordered = new ArrayList<>(circuitAggregateLoader.loadStops(circuitId));
+        Map<Long, CircuitStop> byId = new HashMap<>();
+        Set<Long> placeIds = new HashSet<>();
+        for (CircuitStop s : ordered) {
+            byId.put(s.getId(), s);
+            placeIds.add(s.getPlace().getId());
         }
-        circuitStopRepository.saveAll(toShift);
 
-        return getMyCircuit(circuitId, userEmail);
+        List<CircuitStop> added = new ArrayList<>();
+        List<CircuitStop> removed = new ArrayList<>();
+        Set<CircuitStop> touched = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        List<CircuitStopOperation> ops = req.getOperations();
+        for (int i = 0; i < ops.size(); i++) {
+            CircuitStopOperation op = ops.get(i);
+            String prefix = "Operation " + (i + 1) + ": ";
+
+            switch (op.getOp().trim().toUpperCase()) {
+                case "ADD" -> {
+                    if (op.getPlaceId() == null) throw new BadRequestException(prefix + "placeId is required for ADD");
+                    Place place = findPlaceOrThrow(op.getPlaceId());
+                    if (!place.getCity().getId().equals(circuit.getCity().getId())) {
+                        throw new BadRequestException(prefix + "Place does not belong to this circuit's city");
+                    }
+                    if (!placeIds.add(place.getId())) {
+                        throw new BadRequestException(prefix + "This place is already a stop in the circuit");
+                    }
+
+                    CircuitStop stop = new CircuitStop();
+                    stop.setCircuit(circuit);
+                    stop.setPlace(place);
+                    applyStopFields(stop, op);
+                    insertAtPosition(ordered, stop, op.getPosition());
+                    added.add(stop);
+                    touched.add(stop);
+                }
+                case "MOVE" -> {
+                    CircuitStop stop = findBatchStopOrThrow(byId, op, prefix);
+                    if (op.getPosition() == null) throw new BadRequestException(prefix + "position is required for MOVE");
+                    ordered.remove(stop);
+                    insertAtPosition(ordered, stop, op.getPosition());
+                }
+                case "UPDATE" -> {
+                    CircuitStop stop = findBatchStopOrThrow(byId, op, prefix);
+                    applyStopFields(stop, op);
+                    if (op.getPosition() != null) {
+                        ordered.remove(stop);
+                        insertAtPosition(ordered, stop, op.getPosition());
+                    }
+                    touched.add(stop);
+                }
+                case "DELETE" -> {
+                    CircuitStop stop = findBatchStopOrThrow(byId, op, prefix);
+                    ordered.remove(stop);
+                    byId.remove(stop.getId());
+                    placeIds.remove(stop.getPlace().getId());
+                    touched.remove(stop);
+                    removed.add(stop);
+                }
+                default -> throw new BadRequestException(prefix + "Invalid op " + op.getOp());
+            }
+        }
+
+        for (CircuitStop stop : touched) {
+            validateStopSchedule(stop.getDayNumber(), stop.getStopKind(), stop.getMealType(), stop.getStartTime(), stop.getEndTime());
+        }
+        validateNoOverlappingTimeWindows(ordered, touched);
+
+        StopSortKeys.assign(ordered);
+        circuitStopRepository.deleteAll(removed);
+        circuitStopRepository.saveAll(added);
+        circuitStopRepository.flush();
+        circuitRouteFiller.fillMissing(circuit, ordered);
+        circuitRepository.incrementRevision(circuitId);
+        tourCatalogService.refresh(circuitId);
+
+        // Routes of deleted stops went with them (ON DELETE CASCADE), so read them after the flush
+        return toCircuitResponse(new CircuitAggregate(circuit, ordered, circuitRouteRepository.findByCircuitId(circuitId)));
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> findCircuitsToRespace(long minGap, int limit) {
+        return circuitStopRepository.findCircuitIdsWithSortKeyGapBelow(minGap, limit);
+    }
+
+    /**
+     * Spreads a circuit's stop sort keys back out to even gaps, keeping their order.
+     */
+    @Transactional
+    public void respaceStopSortKeys(Long circuitId) {
+        if (circuitRepository.findByIdForUpdate(circuitId).isEmpty()) return;
+        circuitStopRepository.respaceSortKeys(circuitId, StopSortKeys.GAP);
     }
 
     @Transactional
@@ -402,6 +564,14 @@ public class CircuitService {
                     return r;
                 });
 
+        if (route.isAutoComputed()) {
+            // Estimates from the automatic fill-in must not shadow what the user picks now
+            route.setTransportOption(null);
+            route.setTransportMode(null);
+            route.setDistanceKm(null);
+            route.setDurationMinutes(null);
+        }
+
         if (req.getTransportOptionId() != null) {
             TransportOption option = transportOptionRepository.findById(req.getTransportOptionId())
                     .orElseThrow(() -> new NotFoundException("Transport option not found"));
@@ -427,43 +597,113 @@ public class CircuitService {
         if (req.getDistanceKm() != null) route.setDistanceKm(req.getDistanceKm());
         if (req.getDurationMinutes() != null) route.setDurationMinutes(req.getDurationMinutes());
 
+        // Whatever the client left out is estimated from the places and the chosen mode
+        Place from = fromStop.getPlace();
+        Place to = toStop.getPlace();
+        if (route.getDistanceKm() == null && from.getLatitude() != null && from.getLongitude() != null
+                && to.getLatitude() != null && to.getLongitude() != null) {
+            route.setDistanceKm(Math.round(GeoDistance.roadKm(GeoDistance.placeKm(from, to)) * 100) / 100.0);
+        }
+        if (route.getDurationMinutes() == null && route.getDistanceKm() != null) {
+            route.setDurationMinutes(GeoDistance.modeTravelMinutes(route.getTransportMode(), route.getDistanceKm()));
+        }
+
+        // Edited by the user now, so automatic fill-in leaves it alone
+        route.setAutoComputed(false);
         circuitRouteRepository.save(route);
+        circuitRepository.incrementRevision(circuitId);
         return getMyCircuit(circuitId, userEmail);
     }
 
+    /**
+     * Fills every leg between consecutive stops that has no route and recomputes the server-filled
+     * ones from current transport options; routes entered by the user are kept as they are.
+     */
     @Transactional
-    public CircuitResponse reorderStopsWithAi(Long circuitId, String userEmail) {
+    public CircuitResponse computeRoutes(Long circuitId, String userEmail) {
         User user = findUserByEmailOrThrow(userEmail);
-        Circuit circuit = findOwnedCircuitOrThrow(circuitId, user.getId());
+        Circuit circuit = findOwnedCircuitForUpdateOrThrow(circuitId, user.getId());
 
-        if (!aiService.isConfigured()) {
-            throw new BadRequestException("AI service is not configured");
+        if (circuitRouteFiller.recomputeAll(circuit, circuitAggregateLoader.loadStops(circuitId))) {
+            circuitRepository.incrementRevision(circuitId);
         }
+        return getMyCircuit(circuitId, userEmail);
+    }
+
+    /**
+     * Reorders the stops with the local {@link StopOrderOptimizer}; runs in milliseconds and needs no AI.
+     */
+    @Transactional
+    public CircuitResponse optimizeStopOrder(Long circuitId, String userEmail) {
+        User user = findUserByEmailOrThrow(userEmail);
+        Circuit circuit = findOwnedCircuitForUpdateOrThrow(circuitId, user.getId());
 
-        List<CircuitStop> stops = circuitStopRepository.findByCircuitIdOrderByPositionAsc(circuitId);
+        List<CircuitStop> stops = circuitAggregateLoader.loadStops(circuitId);
         if (stops.size() < 2) {
             throw new BadRequestException("Need at least 2 stops to rearrange");
         }
 
-        String cityName = getPrimaryCityName(circuit.getCity());
+        List<CircuitStop> optimized = StopOrderOptimizer.optimize(stops);
+        if (!optimized.equals(stops)) {
+            StopSortKeys.assign(optimized);
+            circuitStopRepository.saveAll(optimized);
+            circuitRouteFiller.fillMissing(circuit, optimized);
+            circuitRepository.incrementRevision(circuitId);
+        }
 
-        StringBuilder stopsJson = new StringBuilder("[\n");
-        for (int i = 0; i < stops.size(); i++) {
-            CircuitStop s = stops.get(i);
-            Place p = s.getPlace();
-            if (i > 0) stopsJson.append(",\n");
-            stopsJson.append(String.format(
-                    "  {\"id\": %d, \"name\": \"%s\", \"category\": \"%s\", \"lat\": %s, \"lng\": %s, \"stopKind\": \"%s\", \"dayNumber\": %s}",
-                    s.getId(),
-                    p.getName().replace("\"", "\\\""),
-                    p.getCategory() != null ? p.getCategory() : "",
-                    p.getLatitude() != null ? p.getLatitude().toString() : "null",
-                    p.getLongitude() != null ? p.getLongitude().toString() : "null",
-                    s.getStopKind() != null ? s.getStopKind() : "",
-                    s.getDayNumber() != null ? s.getDayNumber().toString() : "null"
-            ));
+        return getMyCircuit(circuitId, userEmail);
+    }
+
+    private record ReorderRequest(Long userId, long revision, List<Long> stopIds, String userPrompt) {
+    }
+
+    /**
+     * Asks the AI for a better stop order. The circuit is read without a lock and the AI is called
+     * with no transaction open; the order is then applied under the circuit lock, and only if the
+     * circuit's revision has not moved in the meantime.
+     */
+    public CircuitResponse reorderStopsWithAi(Long circuitId, String userEmail) {
+        if (!aiService.isConfigured()) {
+            throw new BadRequestException("AI service is not configured");
         }
-        stopsJson.append("\n]");
+
+        ReorderRequest request = transactionTemplate.execute(tx -> {
+            User user = findUserByEmailOrThrow(userEmail);
+            Circuit circuit = findOwnedCircuitOrThrow(circuitId, user.getId());
+
+            List<CircuitStop> stops = circuitAggregateLoader.loadStops(circuitId);
+            if (stops.size() < 2) {
+                throw new BadRequestException("Need at least 2 stops to rearrange");
+            }
+
+            String cityName = getPrimaryCityName(circuit.getCity());
+
+            StringBuilder stopsJson = new StringBuilder("[\n");
+            for (int i = 0; i < stops.size(); i++) {
+                CircuitStop s = stops.get(i);
+                Place p = s.getPlace();
+                if (i > 0) stopsJson.append(",\n");
+                stopsJson.append(String.format(
+                        "  {\"id\": %d, \"name\": \"%s\", \"category\": \"%s\", \"lat\": %s, \"lng\": %s, \"stopKind\": \"%s\", \"dayNumber\": %s}",
+                        s.getId(),
+                        p.getName().replace("\"", "\\\""),
+                        p.getCategory() != null ? p.getCategory() : "",
+                        p.getLatitude() != null ? p.getLatitude().toString() : "null",
+                        p.getLongitude() != null ? p.getLongitude().toString() : "null",
+                        s.getStopKind() != null ? s.getStopKind() : "",
+                        s.getDayNumber() != null ? s.getDayNumber().toString() : "null"
+                ));
+            }
+            stopsJson.append("\n]");
+
+            String userPrompt = String.format(
+                    "Reorder these stops for an optimal tourist circuit in %s, Morocco:\n%s",
+                    cityName != null ? cityName : "the city",
+                    stopsJson
+            );
+            return new ReorderRequest(user.getId(), circuit.getRevision(),
+                    stops.stream().map(CircuitStop::getId).toList(), userPrompt);
+        });
 
         String systemPrompt = "You are a Moroccan travel route optimizer. " +
                 "Given a list of circuit stops in a Moroccan city, reorder them for the most efficient and enjoyable tourist route. " +
@@ -472,14 +712,9 @@ public class CircuitService {
                 "Respond ONLY with valid JSON in this exact format: " +
                 "{\"ordered_ids\": [id1, id2, ...], \"explanation\": \"Brief reason for this order\"}";
 
-        String userPrompt = String.format(
-                "Reorder these stops for an optimal tourist circuit in %s, Morocco:\n%s",
-                cityName != null ? cityName : "the city",
-                stopsJson
-        );
-
+        List<Long> newOrder;
         try {
-            String aiResponse = aiService.chatCompletion(systemPrompt, userPrompt);
+            String aiResponse = aiService.chatCompletion(systemPrompt, request.userPrompt());
             log.info("AI reorder response for circuit {}: {}", circuitId, aiResponse);
 
             String jsonContent = aiResponse.trim();
@@ -489,64 +724,136 @@ public class CircuitService {
                 jsonContent = jsonContent.substring(braceStart, braceEnd + 1);
             }
 
-            List<Long> newOrder = parseOrderedIds(jsonContent);
-
-            if (newOrder.size() != stops.size()) {
-                throw new BadRequestException("AI returned invalid number of stops");
-            }
-
-            // Validate all IDs match
-            List<Long> existingIds = stops.stream().map(CircuitStop::getId).sorted().toList();
-            List<Long> sortedNewOrder = newOrder.stream().sorted().toList();
-            if (!existingIds.equals(sortedNewOrder)) {
-                throw new BadRequestException("AI returned mismatched stop IDs");
-            }
-
-            // Apply new positions
-            for (int i = 0; i < newOrder.size(); i++) {
-                Long stopId = newOrder.get(i);
-                CircuitStop stop = stops.stream()
-                        .filter(s -> s.getId().equals(stopId))
-                        .findFirst()
-                        .orElseThrow();
-                stop.setPosition(i + 1);
-            }
-            circuitStopRepository.saveAll(stops);
-
-            return getMyCircuit(circuitId, userEmail);
+            newOrder = parseOrderedIds(jsonContent);
         } catch (BadRequestException e) {
             throw e;
         } catch (Exception e) {
             log.error("AI reorder failed for circuit {}", circuitId, e);
             throw new BadRequestException("AI reorder failed: " + e.getMessage());
         }
+
+        if (newOrder.size() != request.stopIds().size()) {
+            throw new BadRequestException("AI returned invalid number of stops");
+        }
+
+        // Validate all IDs match
+        List<Long> existingIds = request.stopIds().stream().sorted().toList();
+        List<Long> sortedNewOrder = newOrder.stream().sorted().toList();
+        if (!existingIds.equals(sortedNewOrder)) {
+            throw new BadRequestException("AI returned mismatched stop IDs");
+        }
+
+        return transactionTemplate.execute(tx -> {
+            Circuit circuit = findOwnedCircuitForUpdateOrThrow(circuitId, request.userId());
+            // Any stop edit bumps the revision, so an unchanged one means the stops the AI saw are current
+            if (circuit.getRevision() != request.revision()) {
+                throw new BadRequestException("The circuit changed while the AI was reordering it; please try again");
+            }
+
+            // Apply the new order, rewriting only the stops that actually moved
+            Map<Long, CircuitStop> byId = new HashMap<>();
+            for (CircuitStop s : circuitAggregateLoader.loadStops(circuitId)) byId.put(s.getId(), s);
+            List<CircuitStop> reordered = newOrder.stream().map(byId::get).toList();
+            StopSortKeys.assign(reordered);
+            circuitStopRepository.saveAll(reordered);
+            circuitRouteFiller.fillMissing(circuit, reordered);
+            circuitRepository.incrementRevision(circuitId);
+
+            return getMyCircuit(circuitId, userEmail);
+        });
     }
 
+    /**
+     * Plans a circuit with the local {@link ItineraryPlanner}; no AI involved.
+     */
     @Transactional
-    public CircuitResponse generateCircuitWithAi(AiGenerateCircuitRequest req, String userEmail) {
+    public CircuitResponse planCircuit(AiGenerateCircuitRequest req, String userEmail) {
         User user = findUserByEmailOrThrow(userEmail);
         City city = findCityOrThrow(req.getCityId());
+        List<String> interests = req.getInterests() != null ? req.getInterests() : List.of();
+        List<Place> places = findPlacesForPlanningOrThrow(city);
 
-        if (!aiService.isConfigured()) {
-            throw new BadRequestException("AI service is not configured");
-        }
+        return saveGeneratedCircuit(user, city, null, req.getNumberOfDays(), interests,
+                ItineraryPlanner.plan(places, req.getNumberOfDays(), interests));
+    }
 
-        String cityName = getPrimaryCityName(city);
+    /**
+     * Plans a circuit with the LLM, falling back to the local planner when the AI is not configured,
+     * fails, times out or returns no usable stops.
+     */
+    @Transactional
+    public CircuitResponse generateCircuitWithAi(AiGenerateCircuitRequest req, String userEmail) {
+        User user = findUserByEmailOrThrow(userEmail);
+        City city = findCityOrThrow(req.getCityId());
         int numberOfDays = req.getNumberOfDays();
         List<String> interests = req.getInterests() != null ? req.getInterests() : List.of();
-        String travelDate = req.getTravelDate();
+        List<Place> places = findPlacesForPlanningOrThrow(city);
+
+        AiCircuitPlan plan = null;
+        if (aiService.isConfigured()) {
+            try {
+                plan = requestAiCircuitPlan(city, places, numberOfDays, interests, req.getTravelDate());
+            } catch (Exception e) {
+                log.warn("AI circuit generation failed for city {}, using the local planner", city.getId(), e);
+            }
+        }
 
-        // Fetch weather info
-        String weatherInfo = "No weather data.";
-        if (travelDate != null && !travelDate.isBlank()) {
-            weatherInfo = weatherService.getWeatherSummary(cityName, travelDate);
+        if (plan != null) {
+            return saveGeneratedCircuit(user, city, plan.name(), numberOfDays, interests, plan.stops());
         }
+        return saveGeneratedCircuit(user, city, null, numberOfDays, interests,
+                ItineraryPlanner.plan(places, numberOfDays, interests));
+    }
 
-        // Get all places in this city
+    private List<Place> findPlacesForPlanningOrThrow(City city) {
         List<Place> places = placeRepository.findByCityId(city.getId());
         if (places.isEmpty()) {
             throw new BadRequestException("No places available in this city to build a circuit");
         }
+        return places;
+    }
+
+    /**
+     * Saves a generated circuit; aiName is null for local plans. Stops come ordered and unsaved.
+     */
+    private CircuitResponse saveGeneratedCircuit(User user, City city, String aiName, int numberOfDays,
+                                                 List<String> interests, List<CircuitStop> stops) {
+        if (stops.isEmpty()) {
+            throw new BadRequestException("Could not plan any stops for this city");
+        }
+
+        String name = aiName;
+        if (name == null || name.isBlank()) {
+            name = getPrimaryCityName(city) + " " + numberOfDays + "-day circuit";
+        }
+        String interestList = interests.isEmpty() ? "general" : String.join(", ", interests);
+
+        Circuit circuit = new Circuit();
+        circuit.setCity(city);
+        circuit.setName(name);
+        circuit.setNotes((aiName != null ? "Generated by AI" : "Planned automatically") + " based on interests: " + interestList);
+        circuit.setCreatedBy(user);
+        circuit = circuitRepository.save(circuit);
+
+        for (CircuitStop stop : stops) {
+            stop.setCircuit(circuit);
+        }
+        StopSortKeys.respace(stops);
+        circuitStopRepository.saveAll(stops);
+        circuitRouteFiller.fillMissing(circuit, stops);
+
+        return getMyCircuit(circuit.getId(), user.getEmail());
+    }
+
+    private AiCircuitPlan requestAiCircuitPlan(City city, List<Place> places, int numberOfDays,
+                                               List<String> interests, String travelDate) throws Exception {
+        String cityName = getPrimaryCityName(city);
+
+        // Fetch weather info
+        String weatherInfo = "No weather data.";
+        if (travelDate != null && !travelDate.isBlank()) {
+            weatherInfo = weatherService.getWeatherSummary(cityName, travelDate);
+        }
 
         // Build places JSON for the AI
         StringBuilder placesJson = new StringBuilder("[\n");
@@ -591,147 +898,146 @@ public class CircuitService {
                 placesJson
         );
 
-        String aiResponse = null;
-        try {
-            aiResponse = aiService.chatCompletion(systemPrompt, userPrompt);
-            log.info("AI generate circuit response: {}", aiResponse);
-
-            // Extract JSON
-            String jsonContent = aiResponse
-                    .replace("```json", "")
-                    .replace("```", "")
-                    .trim();
-            int braceStart = jsonContent.indexOf('{');
-            int braceEnd = jsonContent.lastIndexOf('}');
-            if (braceStart >= 0 && braceEnd > braceStart) {
-                jsonContent = jsonContent.substring(braceStart, braceEnd + 1);
-            }
+        String aiResponse = aiService.chatCompletion(systemPrompt, userPrompt);
+        log.info("AI generate circuit response: {}", aiResponse);
+
+        // Extract JSON
+        String jsonContent = aiResponse
+                .replace("```json", "")
+                .replace("```", "")
+                .trim();
+        int braceStart = jsonContent.indexOf('{');
+        int braceEnd = jsonContent.lastIndexOf('}');
+        if (braceStart >= 0 && braceEnd > braceStart) {
+            jsonContent = jsonContent.substring(braceStart, braceEnd + 1);
+        }
 
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode root = objectMapper.readTree(jsonContent);
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode root = objectMapper.readTree(jsonContent);
 
-            // Parse circuit name
-            JsonNode circuitNameNode = root.get("circuit_name");
-            String circuitName = circuitNameNode != null ? circuitNameNode.asText() : null;
-            if (circuitName == null || circuitName.isBlank()) {
-                circuitName = cityName + " " + numberOfDays + "-day circuit";
-            }
+        JsonNode circuitNameNode = root.get("circuit_name");
+        String circuitName = circuitNameNode != null ? circuitNameNode.asText() : null;
 
-            // Create the circuit
-            Circuit circuit = new Circuit();
-            circuit.setCity(city);
-            circuit.setName(circuitName);
-            circuit.setNotes("Generated by AI based on interests: " + (interests.isEmpty() ? "general" : String.join(", ", interests)));
-            circuit.setCreatedBy(user);
-            circuit = circuitRepository.save(circuit);
-
-            // Parse stops array
-            JsonNode stopsNode = root.get("stops");
-            if (stopsNode == null || !stopsNode.isArray()) {
-                throw new BadRequestException("AI response missing stops array");
-            }
+        JsonNode stopsNode = root.get("stops");
+        if (stopsNode == null || !stopsNode.isArray()) {
+            throw new BadRequestException("AI response missing stops array");
+        }
 
-            List<CircuitStop> createdStops = new ArrayList<>();
-
-            for (JsonNode stopNode : stopsNode) {
-                Long placeId = stopNode.hasNonNull("place_id") ? stopNode.get("place_id").asLong() : null;
-                Integer dayNumber = stopNode.hasNonNull("day_number") ? stopNode.get("day_number").asInt() : null;
-                Integer position = stopNode.hasNonNull("position") ? stopNode.get("position").asInt() : null;
-                String stopKind = stopNode.hasNonNull("stop_kind") ? stopNode.get("stop_kind").asText() : null;
-                String mealType = stopNode.hasNonNull("meal_type") ? stopNode.get("meal_type").asText() : null;
-                Integer durationMinutes = stopNode.hasNonNull("duration_minutes") ? stopNode.get("duration_minutes").asInt() : null;
-                String startTimeStr = stopNode.hasNonNull("start_time") ? stopNode.get("start_time").asText() : null;
-
-                if (placeId != null && position != null) {
-                    // Validate place exists and belongs to city
-                    Place place = places.stream()
-                            .filter(p -> p.getId().equals(placeId))
-                            .findFirst()
-                            .orElse(null);
-
-                    if (place != null) {
-                        CircuitStop stop = new CircuitStop();
-                        stop.setCircuit(circuit);
-                        stop.setPlace(place);
-                        stop.setPosition(position);
-                        stop.setDayNumber(dayNumber);
-                        stop.setStopKind(normalizeStopKind(stopKind));
-                        stop.setMealType(normalizeMealType(mealType));
-                        stop.setDurationMinutes(durationMinutes);
-
-                        if (startTimeStr != null && startTimeStr.matches("\\d{2}:\\d{2}")) {
-                            LocalTime startTime = LocalTime.parse(startTimeStr);
-                            stop.setStartTime(startTime);
-                            if (durationMinutes != null) {
-                                stop.setEndTime(startTime.plusMinutes(durationMinutes));
-                            }
+        List<CircuitStop> createdStops = new ArrayList<>();
+        Map<CircuitStop, Integer> aiPositions = new IdentityHashMap<>();
+
+        for (JsonNode stopNode : stopsNode) {
+            Long placeId = stopNode.hasNonNull("place_id") ? stopNode.get("place_id").asLong() : null;
+            Integer dayNumber = stopNode.hasNonNull("day_number") ? stopNode.get("day_number").asInt() : null;
+            Integer position = stopNode.hasNonNull("position") ? stopNode.get("position").asInt() : null;
+            String stopKind = stopNode.hasNonNull("stop_kind") ? stopNode.get("stop_kind").asText() : null;
+            String mealType = stopNode.hasNonNull("meal_type") ? stopNode.get("meal_type").asText() : null;
+            Integer durationMinutes = stopNode.hasNonNull("duration_minutes") ? stopNode.get("duration_minutes").asInt() : null;
+            String startTimeStr = stopNode.hasNonNull("start_time") ? stopNode.get("start_time").asText() : null;
+
+            if (placeId != null && position != null) {
+                // Validate place exists and belongs to city
+                Place place = places.stream()
+                        .filter(p -> p.getId().equals(placeId))
+                        .findFirst()
+                        .orElse(null);
+
+                if (place != null) {
+                    CircuitStop stop = new CircuitStop();
+                    stop.setPlace(place);
+                    aiPositions.put(stop, position);
+                    stop.setDayNumber(dayNumber);
+                    stop.setStopKind(normalizeStopKind(stopKind));
+                    stop.setMealType(normalizeMealType(mealType));
+                    stop.setDurationMinutes(durationMinutes);
+
+                    if (startTimeStr != null && startTimeStr.matches("\\d{2}:\\d{2}")) {
+                        LocalTime startTime = LocalTime.parse(startTimeStr);
+                        stop.setStartTime(startTime);
+                        if (durationMinutes != null) {
+                            stop.setEndTime(startTime.plusMinutes(durationMinutes));
                         }
-
-                        createdStops.add(stop);
                     }
+
+                    createdStops.add(stop);
                 }
             }
+        }
 
-            if (createdStops.isEmpty()) {
-                circuitRepository.delete(circuit);
-                throw new BadRequestException("AI failed to generate valid stops");
-            }
+        if (createdStops.isEmpty()) {
+            throw new BadRequestException("AI failed to generate valid stops");
+        }
 
-            circuitStopRepository.saveAll(createdStops);
+        // Stable sort keeps the AI's order for equal positions
+        createdStops.sort(Comparator.comparing(aiPositions::get));
+        return new AiCircuitPlan(circuitName, createdStops);
+    }
 
-            return getMyCircuit(circuit.getId(), userEmail);
-        } catch (BadRequestException e) {
-            throw e;
-        } catch (Exception e) {
-            if (aiResponse != null) {
-                log.error("AI circuit generation failed. Raw AI response: {}", aiResponse);
-            }
-            log.error("AI circuit generation failed", e);
-            throw new BadRequestException("AI circuit generation failed: " + e.getMessage());
-        }
+    private record AiCircuitPlan(String name, List<CircuitStop> stops) {
     }
 
-    @Transactional
-    public CircuitResponse suggestPlacesWithAi(Long circuitId, AiSuggestPlacesRequest req, String userEmail) {
-        User user = findUserByEmailOrThrow(userEmail);
-        Circuit circuit = findOwnedCircuitOrThrow(circuitId, user.getId());
+    private record SuggestRequest(Long userId, String userPrompt) {
+    }
 
+    /**
+     * Asks the AI for new places and appends them as stops. As in {@link #reorderStopsWithAi}, the AI
+     * is called with no transaction open; the new sort keys are taken under the circuit lock.
+     */
+    public CircuitResponse suggestPlacesWithAi(Long circuitId, AiSuggestPlacesRequest req, String userEmail) {
         if (!aiService.isConfigured()) {
             throw new BadRequestException("AI service is not configured");
         }
 
-        City city = circuit.getCity();
-        String cityName = getPrimaryCityName(city);
-        int count = req.getCount() != null ? req.getCount() : 5;
-        String preferences = req.getPreferences();
-
-        List<Place> existingPlaces = placeRepository.findByCityId(city.getId());
-        List<CircuitStop> existingStops = circuitStopRepository.findByCircuitIdOrderByPositionAsc(circuitId);
-
-        StringBuilder existingJson = new StringBuilder("[\n");
-        for (int i = 0; i < existingPlaces.size(); i++) {
-            Place p = existingPlaces.get(i);
-            if (i > 0) existingJson.append(",\n");
-            existingJson.append(String.format(
-                    "  {\"id\": %d, \"name\": \"%s\", \"category\": \"%s\"}",
-                    p.getId(),
-                    p.getName().replace("\"", "\\\""),
-                    p.getCategory() != null ? p.getCategory() : ""
-            ));
-        }
-        existingJson.append("\n]");
-
-        StringBuilder currentStopsJson = new StringBuilder("[\n");
-        for (int i = 0; i < existingStops.size(); i++) {
-            CircuitStop s = existingStops.get(i);
-            if (i > 0) currentStopsJson.append(",\n");
-            currentStopsJson.append(String.format(
-                    "  {\"name\": \"%s\", \"category\": \"%s\"}",
-                    s.getPlace().getName().replace("\"", "\\\""),
-                    s.getPlace().getCategory() != null ? s.getPlace().getCategory() : ""
-            ));
-        }
-        currentStopsJson.append("\n]");
+        SuggestRequest request = transactionTemplate.execute(tx -> {
+            User user = findUserByEmailOrThrow(userEmail);
+            Circuit circuit = findOwnedCircuitOrThrow(circuitId, user.getId());
+
+            City city = circuit.getCity();
+            String cityName = getPrimaryCityName(city);
+            int count = req.getCount() != null ? req.getCount() : 5;
+            String preferences = req.getPreferences();
+
+            List<Place> existingPlaces = placeRepository.findByCityId(city.getId());
+            List<CircuitStop> existingStops = circuitAggregateLoader.loadStops(circuitId);
+
+            StringBuilder existingJson = new StringBuilder("[\n");
+            for (int i = 0; i < existingPlaces.size(); i++) {
+                Place p = existingPlaces.get(i);
+                if (i > 0) existingJson.append(",\n");
+                existingJson.append(String.format(
+                        "  {\"id\": %d, \"name\": \"%s\", \"category\": \"%s\"}",
+                        p.getId(),
+                        p.getName().replace("\"", "\\\""),
+                        p.getCategory() != null ? p.getCategory() : ""
+                ));
+            }
+            existingJson.append("\n]");
+
+            StringBuilder currentStopsJson = new StringBuilder("[\n");
+            for (int i = 0; i < existingStops.size(); i++) {
+                CircuitStop s = existingStops.get(i);
+                if (i > 0) currentStopsJson.append(",\n");
+                currentStopsJson.append(String.format(
+                        "  {\"name\": \"%s\", \"category\": \"%s\"}",
+                        s.getPlace().getName().replace("\"", "\\\""),
+                        s.getPlace().getCategory() != null ? s.getPlace().getCategory() : ""
+                ));
+            }
+            currentStopsJson.append("\n]");
+
+            String userPrompt = String.format(
+                    "Suggest %d new places to visit in %s, Morocco.\n" +
+                    "%s" +
+                    "Already existing places (do NOT repeat these):\n%s\n" +
+                    "Current circuit stops (suggest complementary places):\n%s",
+                    count,
+                    cityName != null ? cityName : "the city",
+                    preferences != null && !preferences.isBlank() ? "Preferences: " + preferences + "\n" : "",
+                    existingJson,
+                    currentStopsJson
+            );
+            return new SuggestRequest(user.getId(), userPrompt);
+        });
 
         String systemPrompt = "You are a Moroccan travel expert. " +
                 "Given a city in Morocco, suggest NEW real places that tourists should visit. " +
@@ -744,21 +1050,11 @@ public class CircuitService {
                 "  {\"name\": \"Place Name\", \"category\": \"RESTAURANT\", \"description\": \"Short description\", \"address\": \"Street address\", \"latitude\": 35.785, \"longitude\": -5.813}\n" +
                 "]}";
 
-        String userPrompt = String.format(
-                "Suggest %d new places to visit in %s, Morocco.\n" +
-                "%s" +
-                "Already existing places (do NOT repeat these):\n%s\n" +
-                "Current circuit stops (suggest complementary places):\n%s",
-                count,
-                cityName != null ? cityName : "the city",
-                preferences != null && !preferences.isBlank() ? "Preferences: " + preferences + "\n" : "",
-                existingJson,
-                currentStopsJson
-        );
-
+        // Parsed into unsaved places; the city and owner are set once the circuit is locked
+        List<Place> suggested = new ArrayList<>();
         String aiResponse = null;
         try {
-            aiResponse = aiService.chatCompletion(systemPrompt, userPrompt);
+            aiResponse = aiService.chatCompletion(systemPrompt, request.userPrompt());
             log.info("AI suggest places response for circuit {}: {}", circuitId, aiResponse);
 
             String jsonContent = aiResponse
@@ -779,12 +1075,6 @@ public class CircuitService {
                 throw new BadRequestException("AI response missing places array");
             }
 
-            int lastPos = circuitStopRepository.findTopByCircuitIdOrderByPositionDesc(circuitId)
-                    .map(CircuitStop::getPosition)
-                    .orElse(0);
-
-            List<CircuitStop> newStops = new ArrayList<>();
-
             for (JsonNode placeNode : placesNode) {
                 String name = placeNode.hasNonNull("name") ? placeNode.get("name").asText() : null;
                 String category = placeNode.hasNonNull("category") ? placeNode.get("category").asText() : null;
@@ -798,31 +1088,14 @@ public class CircuitService {
                 }
 
                 Place place = new Place();
-                place.setCity(city);
                 place.setName(name.trim());
                 place.setCategory(category);
                 place.setDescription(description);
                 place.setAddress(address);
                 place.setLatitude(latitude);
                 place.setLongitude(longitude);
-                place.setCreatedBy(user);
-                place = placeRepository.save(place);
-
-                lastPos++;
-                CircuitStop stop = new CircuitStop();
-                stop.setCircuit(circuit);
-                stop.setPlace(place);
-                stop.setPosition(lastPos);
-                stop.setStopKind("VISIT");
-                newStops.add(stop);
-            }
-
-            if (newStops.isEmpty()) {
-                throw new BadRequestException("AI failed to suggest valid places");
+                suggested.add(place);
             }
-
-            circuitStopRepository.saveAll(newStops);
-            return getMyCircuit(circuitId, userEmail);
         } catch (BadRequestException e) {
             throw e;
         } catch (Exception e) {
@@ -832,6 +1105,43 @@ public class CircuitService {
             log.error("AI suggest places failed for circuit {}", circuitId, e);
             throw new BadRequestException("AI suggest places failed: " + e.getMessage());
         }
+
+        if (suggested.isEmpty()) {
+            throw new BadRequestException("AI failed to suggest valid places");
+        }
+
+        return transactionTemplate.execute(tx -> {
+            // Locked before reading the last sort key so concurrent stop edits cannot take the same keys
+            Circuit circuit = findOwnedCircuitForUpdateOrThrow(circuitId, request.userId());
+            City city = circuit.getCity();
+
+            long lastKey = circuitStopRepository.findTopByCircuitIdOrderBySortKeyDesc(circuitId)
+                    .map(CircuitStop::getSortKey)
+                    .orElse(0L);
+
+            List<CircuitStop> newStops = new ArrayList<>();
+            for (Place suggestion : suggested) {
+                suggestion.setCity(city);
+                suggestion.setCreatedBy(circuit.getCreatedBy());
+                Place place = placeRepository.save(suggestion);
+                travelMatrixService.placeSaved(place);
+                transitGraphService.cityChanged(city.getId());
+
+                lastKey += StopSortKeys.GAP;
+                CircuitStop stop = new CircuitStop();
+                stop.setCircuit(circuit);
+                stop.setPlace(place);
+                stop.setSortKey(lastKey);
+                stop.setStopKind("VISIT");
+                newStops.add(stop);
+            }
+
+            circuitStopRepository.saveAll(newStops);
+            fillRouteGaps(circuit);
+            circuitRepository.incrementRevision(circuitId);
+            tourCatalogService.refresh(circuitId);
+            return getMyCircuit(circuitId, userEmail);
+        });
     }
 
     private List<Long> parseOrderedIds(String json) {
@@ -858,73 +1168,52 @@ public class CircuitService {
         return ids;
     }
 
-    private int resolveTargetPositionForInsert(Long circuitId, Integer requestedPosition) {
-        int lastPos = circuitStopRepository.findTopByCircuitIdOrderByPositionDesc(circuitId)
-                .map(CircuitStop::getPosition)
-                .orElse(0);
-
-        if (requestedPosition == null) {
-            return lastPos + 1;
-        }
-
-        if (requestedPosition <= 0) throw new BadRequestException("Position must be > 0");
-
-        int maxAllowed = lastPos + 1;
-        if (requestedPosition > maxAllowed) {
-            return maxAllowed;
+    /**
+     * Gives stop a sort key for the 1-based position among the circuit's other stops (null appends).
+     * Only the stop itself is rewritten unless its new neighbours have no gap left between them.
+     */
+    private void placeAtPosition(Long circuitId, CircuitStop stop, Integer position) {
+        if (position == null && stop.getId() == null) {
+            long lastKey = circuitStopRepository.findTopByCircuitIdOrderBySortKeyDesc(circuitId)
+                    .map(CircuitStop::getSortKey)
+                    .orElse(0L);
+            stop.setSortKey(lastKey + StopSortKeys.GAP);
+            return;
         }
 
-        return requestedPosition;
+        List<CircuitStop> ordered = new ArrayList<>(circuitStopRepository.findByCircuitIdOrderBySortKeyAsc(circuitId));
+        ordered.remove(stop);
+        insertAtPosition(ordered, stop, position);
+        StopSortKeys.assign(ordered);
     }
 
-    private void shiftPositionsForInsert(Long circuitId, int position) {
-        List<CircuitStop> stops = circuitStopRepository.findByCircuitIdOrderByPositionAsc(circuitId).stream()
-                .filter(s -> s.getPosition() >= position)
-                .sorted(Comparator.comparing(CircuitStop::getPosition).reversed())
-                .toList();
-
-        for (CircuitStop s : stops) {
-            s.setPosition(s.getPosition() + 1);
-        }
-
-        circuitStopRepository.saveAll(stops);
+    private CircuitStop findBatchStopOrThrow(Map<Long, CircuitStop> byId, CircuitStopOperation op, String prefix) {
+        if (op.getStopId() == null) throw new BadRequestException(prefix + "stopId is required");
+        CircuitStop stop = byId.get(op.getStopId());
+        if (stop == null) throw new NotFoundException(prefix + "Circuit stop not found");
+        return stop;
     }
 
-    private void repositionStop(Long circuitId, CircuitStop moving, int requestedPosition) {
-        List<CircuitStop> allStops = circuitStopRepository.findByCircuitIdOrderByPositionAsc(circuitId);
-        if (allStops.isEmpty()) return;
-
-        int oldPos = moving.getPosition();
-        int maxPos = allStops.getLast().getPosition();
-
-        int newPos = requestedPosition;
-        if (newPos > maxPos) newPos = maxPos;
-
-        if (newPos == oldPos) {
-            circuitStopRepository.save(moving);
-            return;
-        }
-
-        if (newPos < oldPos) {
-            for (CircuitStop s : allStops) {
-                if (s.getId().equals(moving.getId())) continue;
-                int p = s.getPosition();
-                if (p >= newPos && p < oldPos) {
-                    s.setPosition(p + 1);
-                }
-            }
+    private void insertAtPosition(List<CircuitStop> ordered, CircuitStop stop, Integer position) {
+        if (position == null || position > ordered.size()) {
+            ordered.add(stop);
         } else {
-            for (CircuitStop s : allStops) {
-                if (s.getId().equals(moving.getId())) continue;
-                int p = s.getPosition();
-                if (p > oldPos && p <= newPos) {
-                    s.setPosition(p - 1);
-                }
-            }
+            ordered.add(position - 1, stop);
         }
+    }
 
-        moving.setPosition(newPos);
-        circuitStopRepository.saveAll(allStops);
+    private void applyStopFields(CircuitStop stop, CircuitStopOperation op) {
+        if (op.getDayNumber() != null) stop.setDayNumber(op.getDayNumber());
+        if (op.getStopKind() != null) stop.setStopKind(normalizeStopKind(op.getStopKind()));
+        if (op.getMealType() != null) stop.setMealType(normalizeMealType(op.getMealType()));
+        if (op.getStartTime() != null) stop.setStartTime(op.getStartTime());
+        if (op.getEndTime() != null) stop.setEndTime(op.getEndTime());
+        if (op.getDurationMinutes() != null) stop.setDurationMinutes(op.getDurationMinutes());
+        if (op.getNotes() != null) stop.setNotes(op.getNotes());
+
+        if (stop.getMealType() != null && stop.getStopKind() == null) {
+            stop.setStopKind("EAT");
+        }
     }
 
     // ── Circuit Sessions ──────────────────────────────────────
@@ -956,7 +1245,9 @@ public class CircuitService {
         session.setMaxParticipants(req.getMaxParticipants());
         session.setNotes(req.getNotes());
 
-        return toSessionResponse(circuitSessionRepository.save(session));
+        session = circuitSessionRepository.save(session);
+        tourCatalogService.refresh(circuitId);
+        return toSessionResponse(session);
     }
 
     @Transactional
@@ -964,7 +1255,8 @@ public class CircuitService {
         User user = findUserByEmailOrThrow(userEmail);
         findOwnedCircuitOrThrow(circuitId, user.getId());
 
-        CircuitSession session = circuitSessionRepository.findById(sessionId)
+        // Locked so seatsTaken cannot grow between the capacity check below and the commit
+        CircuitSession session = circuitSessionRepository.findByIdForUpdate(sessionId)
                 .orElseThrow(() -> new NotFoundException("Session not found"));
         if (!session.getCircuit().getId().equals(circuitId)) {
             throw new BadRequestException("Session does not belong to this circuit");
@@ -980,6 +1272,10 @@ public class CircuitService {
             session.setEndDateTime(req.getEndDateTime());
         }
         if (req.getMaxParticipants() != null) {
+            if (req.getMaxParticipants() < session.getSeatsTaken()) {
+                throw new BadRequestException("Max participants cannot be lower than the "
+                        + session.getSeatsTaken() + " seats already booked");
+            }
             session.setMaxParticipants(req.getMaxParticipants());
         }
         if (req.getNotes() != null) {
@@ -993,7 +1289,9 @@ public class CircuitService {
             session.setStatus(status);
         }
 
-        return toSessionResponse(circuitSessionRepository.save(session));
+        session = circuitSessionRepository.save(session);
+        tourCatalogService.refresh(circuitId);
+        return toSessionResponse(session);
     }
 
     @Transactional
@@ -1008,6 +1306,7 @@ public class CircuitService {
         }
 
         circuitSessionRepository.delete(session);
+        tourCatalogService.refresh(circuitId);
     }
 
     private CircuitSessionResponse toSessionResponse(CircuitSession s) {
@@ -1023,16 +1322,25 @@ public class CircuitService {
         return r;
     }
 
-    private CircuitSummaryResponse toCircuitSummaryResponse(Circuit c, long stopCount) {
+    private CircuitSummaryResponse toCircuitSummaryResponse(CircuitSummaryView v) {
         CircuitSummaryResponse r = new CircuitSummaryResponse();
-        r.setId(c.getId());
-        r.setCityId(c.getCity().getId());
-        r.setCityName(getPrimaryCityName(c.getCity()));
-        r.setName(c.getName());
-        r.setNotes(c.getNotes());
-        r.setPriceMad(c.getPriceMad());
-        r.setCreatedAt(c.getCreatedAt());
-        r.setStopCount(stopCount);
+        r.setId(v.getId());
+        r.setCityId(v.getCityId());
+        r.setCityName(v.getCityName());
+        r.setName(v.getName());
+        r.setNotes(v.getNotes());
+        r.setPriceMad(v.getPriceMad());
+        r.setCreatedAt(v.getCreatedAt());
+        r.setStopCount(v.getStopCount());
+        return r;
+    }
+
+    private CircuitResponse toCircuitResponse(CircuitAggregate aggregate) {
+        CircuitResponse r = toCircuitResponseBase(aggregate.circuit());
+        r.setStops(toStopResponses(aggregate.stops()));
+        r.setRoutes(aggregate.routes().stream()
+                .map(this::toRouteResponse)
+                .toList());
         return r;
     }
 
@@ -1049,12 +1357,21 @@ public class CircuitService {
         return r;
     }
 
-    private CircuitStopResponse toStopResponse(CircuitStop stop) {
+    // Positions are 1..n in sort-key order; the keys themselves are sparse and never exposed
+    private List<CircuitStopResponse> toStopResponses(List<CircuitStop> ordered) {
+        List<CircuitStopResponse> out = new ArrayList<>(ordered.size());
+        for (int i = 0; i < ordered.size(); i++) {
+            out.add(toStopResponse(ordered.get(i), i + 1));
+        }
+        return out;
+    }
+
+    private CircuitStopResponse toStopResponse(CircuitStop stop, int position) {
         Place p = stop.getPlace();
 
         CircuitStopResponse r = new CircuitStopResponse();
         r.setId(stop.getId());
-        r.setPosition(stop.getPosition());
+        r.setPosition(position);
         r.setDayNumber(stop.getDayNumber());
         r.setStopKind(stop.getStopKind());
         r.setMealType(stop.getMealType());
@@ -1081,6 +1398,7 @@ public class CircuitService {
         r.setTransportMode(route.getTransportMode());
         r.setDistanceKm(route.getDistanceKm());
         r.setDurationMinutes(route.getDurationMinutes());
+        r.setAutoComputed(route.isAutoComputed());
         return r;
     }
 
@@ -1128,6 +1446,12 @@ public class CircuitService {
                 .orElseThrow(() -> new NotFoundException("Circuit stop not found"));
     }
 
+    // Stop changes are flushed first, so routes of deleted stops are already gone (ON DELETE CASCADE)
+    private void fillRouteGaps(Circuit circuit) {
+        circuitStopRepository.flush();
+        circuitRouteFiller.fillMissing(circuit, circuitAggregateLoader.loadStops(circuit.getId()));
+    }
+
     private Circuit findOwnedCircuitOrThrow(Long circuitId, Long userId) {
         Circuit circuit = circuitRepository.findById(circuitId)
                 .orElseThrow(() -> new NotFoundException("Circuit not found"));
@@ -1139,6 +1463,17 @@ public class CircuitService {
         return circuit;
     }
 
+    private Circuit findOwnedCircuitForUpdateOrThrow(Long circuitId, Long userId) {
+        Circuit circuit = circuitRepository.findByIdForUpdate(circuitId)
+                .orElseThrow(() -> new NotFoundException("Circuit not found"));
+
+        if (!circuit.getCreatedBy().getId().equals(userId)) {
+            throw new NotFoundException("Circuit not found");
+        }
+
+        return circuit;
+    }
+
     private String normalizeStopKind(String stopKind) {
         if (stopKind == null) return null;
         String v = stopKind.trim().toUpperCase();
@@ -1183,19 +1518,37 @@ public class CircuitService {
         }
     }
 
-    private void validateNoOverlappingTimeWindows(Long circuitId, Long stopIdToIgnore, Integer dayNumber, LocalTime startTime, LocalTime endTime) {
-        if (dayNumber == null || startTime == null || endTime == null) return;
+    /**
+     * In-memory overlap check for a batch: sorts each day's timed stops by start time and sweeps once,
+     * rejecting any overlap on a day that has a stop touched by the batch.
+     */
+    private void validateNoOverlappingTimeWindows(List<CircuitStop> stops, Set<CircuitStop> touched) {
+        Map<Integer, List<CircuitStop>> byDay = new TreeMap<>();
+        for (CircuitStop s : stops) {
+            if (s.getDayNumber() == null || s.getStartTime() == null || s.getEndTime() == null) continue;
+            byDay.computeIfAbsent(s.getDayNumber(), d -> new ArrayList<>()).add(s);
+        }
 
-        List<CircuitStop> sameCircuitStops = circuitStopRepository.findByCircuitIdOrderByPositionAsc(circuitId);
-        for (CircuitStop s : sameCircuitStops) {
-            if (stopIdToIgnore != null && s.getId().equals(stopIdToIgnore)) continue;
-            if (s.getDayNumber() == null || !s.getDayNumber().equals(dayNumber)) continue;
-            if (s.getStartTime() == null || s.getEndTime() == null) continue;
+        for (Map.Entry<Integer, List<CircuitStop>> day : byDay.entrySet()) {
+            List<CircuitStop> timed = day.getValue();
+            if (timed.stream().noneMatch(touched::contains)) continue;
 
-            boolean overlaps = startTime.isBefore(s.getEndTime()) && s.getStartTime().isBefore(endTime);
-            if (overlaps) {
-                throw new BadRequestException("Time window overlaps with another stop on day " + dayNumber);
+            timed.sort(Comparator.comparing(CircuitStop::getStartTime));
+            LocalTime latestEnd = null;
+            for (CircuitStop s : timed) {
+                if (latestEnd != null && s.getStartTime().isBefore(latestEnd)) {
+                    throw new BadRequestException("Time window overlaps with another stop on day " + day.getKey());
+                }
+                if (latestEnd == null || s.getEndTime().isAfter(latestEnd)) latestEnd = s.getEndTime();
             }
         }
     }
+
+    private void validateNoOverlappingTimeWindows(Long circuitId, Long stopIdToIgnore, Integer dayNumber, LocalTime startTime, LocalTime endTime) {
+        if (dayNumber == null || startTime == null || endTime == null) return;
+
+        if (circuitStopRepository.existsOverlappingWindow(circuitId, dayNumber, startTime, endTime, stopIdToIgnore)) {
+            throw new BadRequestException("Time window overlaps with another stop on day " + dayNumber);
+        }
+    }
 }
@@ -23,17 +23,26 @@ public class CityService {
     private final CityNameRepository cityNameRepository;
     private final PlaceRepository placeRepository;
     private final UserRepository userRepository;
+    private final TravelMatrixService travelMatrixService;
+    private final TransitGraphService transitGraphService;
+    private final TourCatalogService tourCatalogService;
 
     public CityService(
             CityRepository cityRepository,
             CityNameRepository cityNameRepository,
             PlaceRepository placeRepository,
-            UserRepository userRepository
+            UserRepository userRepository,
+            TravelMatrixService travelMatrixService,
+            TransitGraphService transitGraphService,
+            TourCatalogService tourCatalogService
     ) {
         this.cityRepository = cityRepository;
         this.cityNameRepository = cityNameRepository;
         this.placeRepository = placeRepository;
         this.userRepository = userRepository;
+        this.travelMatrixService = travelMatrixService;
+        this.transitGraphService = transitGraphService;
+        this.tourCatalogService = tourCatalogService;
     }
 
     // ── Cities (read) ───────────────────────────────────────────
@@ -91,6 +100,9 @@ public class CityService {
     public void deleteCity(Long id) {
         if (!cityRepository.existsById(id)) throw new NotFoundException("City not found");
         cityRepository.deleteById(id);
+        travelMatrixService.cityDeleted(id);
+        transitGraphService.cityChanged(id);
+        tourCatalogService.cityListingChanged(id);
     }
 
     // ── City Names ──────────────────────────────────────────────
@@ -110,6 +122,7 @@ public class CityService {
         cn.setName(req.getName().trim());
         cn.setPrimary(req.isPrimary());
         cn = cityNameRepository.save(cn);
+        tourCatalogService.refreshCity(cityId);
         return toCityNameResponse(cn);
     }
 
@@ -131,7 +144,9 @@ public class CityService {
         cn.setLanguageCode(langCode);
         cn.setName(req.getName().trim());
         cn.setPrimary(req.isPrimary());
-        return toCityNameResponse(cityNameRepository.save(cn));
+        cn = cityNameRepository.save(cn);
+        tourCatalogService.refreshCity(cityId);
+        return toCityNameResponse(cn);
     }
 
     @Transactional
@@ -142,6 +157,7 @@ public class CityService {
             throw new BadRequestException("City name does not belong to this city");
         }
         cityNameRepository.delete(cn);
+        tourCatalogService.refreshCity(cityId);
     }
 
     // ── Places (read) ───────────────────────────────────────────
@@ -181,7 +197,10 @@ public class CityService {
         place.setMapPlaceId(req.getMapPlaceId());
         place.setCreatedBy(user);
 
-        return toPlaceResponse(placeRepository.save(place));
+        place = placeRepository.save(place);
+        travelMatrixService.placeSaved(place);
+        transitGraphService.cityChanged(place.getCity().getId());
+        return toPlaceResponse(place);
     }
 
     @Transactional
@@ -195,13 +214,18 @@ public class CityService {
         if (req.getLatitude() != null) place.setLatitude(req.getLatitude());
         if (req.getLongitude() != null) place.setLongitude(req.getLongitude());
         if (req.getMapPlaceId() != null) place.setMapPlaceId(req.getMapPlaceId());
-        return toPlaceResponse(placeRepository.save(place));
+        place = placeRepository.save(place);
+        travelMatrixService.placeSaved(place);
+        transitGraphService.cityChanged(place.getCity().getId());
+        return toPlaceResponse(place);
     }
 
     @Transactional
     public void deletePlace(Long id) {
-        if (!placeRepository.existsById(id)) throw new NotFoundException("Place not found");
+        Place place = findPlaceOrThrow(id);
         placeRepository.deleteById(id);
+        travelMatrixService.placeDeleted(place.getCity().getId(), id);
+        transitGraphService.cityChanged(place.getCity().getId());
     }
 
     // ── Mappers ─────────────────────────────────────────────────
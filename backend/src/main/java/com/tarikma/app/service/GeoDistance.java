@@ -0,0 +1,106 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.entity.Place;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Great-circle distances between coordinates, for estimates where no stored route or matrix entry exists.
+ */
+public final class GeoDistance {
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    // Streets are longer than the straight line between two points
+    static final double ROAD_FACTOR = 1.3;
+    static final double WALK_MAX_KM = 1.5;
+    private static final double WALK_SPEED_KMH = 4.5;
+    private static final double DRIVE_SPEED_KMH = 30.0;
+
+    // Door-to-door averages in city traffic, waiting included
+    private static final Map<String, Double> MODE_SPEEDS_KMH = Map.ofEntries(
+            Map.entry("WALK", WALK_SPEED_KMH),
+            Map.entry("WALKING", WALK_SPEED_KMH),
+            Map.entry("BIKE", 12.0),
+            Map.entry("BUS", 18.0),
+            Map.entry("TRAM", 20.0),
+            Map.entry("TAXI", DRIVE_SPEED_KMH),
+            Map.entry("PETIT_TAXI", DRIVE_SPEED_KMH),
+            Map.entry("CAR", 35.0),
+            Map.entry("DRIVER", 35.0),
+            Map.entry("GRAND_TAXI", 50.0),
+            Map.entry("TRAIN", 60.0)
+    );
+
+    private GeoDistance() {
+    }
+
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    /**
+     * Straight-line distance between two places, or 0 when either has no coordinates.
+     */
+    public static double placeKm(Place a, Place b) {
+        if (a.getLatitude() == null || a.getLongitude() == null || b.getLatitude() == null || b.getLongitude() == null) {
+            return 0;
+        }
+        return haversineKm(a.getLatitude(), a.getLongitude(), b.getLatitude(), b.getLongitude());
+    }
+
+    /**
+     * Rough door-to-door minutes between two places: walking for short hops, driving otherwise.
+     */
+    public static int estimatedTravelMinutes(Place a, Place b) {
+        return estimatedTravelMinutes(placeKm(a, b));
+    }
+
+    /**
+     * Rough door-to-door minutes for a straight-line distance.
+     */
+    public static int estimatedTravelMinutes(double straightKm) {
+        return roadTravelMinutes(roadKm(straightKm));
+    }
+
+    /**
+     * Street distance estimated from a straight-line one.
+     */
+    public static double roadKm(double straightKm) {
+        return straightKm * ROAD_FACTOR;
+    }
+
+    /**
+     * Whether a street distance is short enough that walking is the default way to cover it.
+     */
+    public static boolean walkable(double roadKm) {
+        return roadKm <= WALK_MAX_KM;
+    }
+
+    /**
+     * Minutes to cover a street distance by a transport mode such as "BUS" or "Grand Taxi";
+     * unknown or missing modes walk short hops and drive the rest.
+     */
+    public static int modeTravelMinutes(String mode, double roadKm) {
+        Double speed = mode == null ? null
+                : MODE_SPEEDS_KMH.get(mode.trim().toUpperCase(Locale.ROOT).replace(' ', '_').replace('-', '_'));
+        if (speed == null) {
+            return roadTravelMinutes(roadKm);
+        }
+        return (int) Math.ceil(roadKm / speed * 60);
+    }
+
+    /**
+     * Minutes to cover a distance already measured along streets.
+     */
+    public static int roadTravelMinutes(double roadKm) {
+        double speed = walkable(roadKm) ? WALK_SPEED_KMH : DRIVE_SPEED_KMH;
+        return (int) Math.ceil(roadKm / speed * 60);
+    }
+}
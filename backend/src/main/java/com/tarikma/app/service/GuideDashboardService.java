@@ -1,41 +1,81 @@
 package com.tarikma.app.service;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.tarikma.app.dto.guide.BookingExportFormat;
 import com.tarikma.app.dto.guide.GuideBookingResponse;
+import com.tarikma.app.dto.guide.GuideDailyStatResponse;
 import com.tarikma.app.dto.guide.GuideDashboardSummary;
 import com.tarikma.app.entity.Booking;
 import com.tarikma.app.entity.Circuit;
 import com.tarikma.app.entity.CircuitSession;
 import com.tarikma.app.entity.User;
+import com.tarikma.app.exception.BadRequestException;
 import com.tarikma.app.exception.NotFoundException;
 import com.tarikma.app.repository.BookingRepository;
+import com.tarikma.app.repository.CircuitDailyStatRepository;
 import com.tarikma.app.repository.CircuitRepository;
 import com.tarikma.app.repository.CircuitSessionRepository;
+import com.tarikma.app.repository.GuideDailyStatRepository;
 import com.tarikma.app.repository.UserRepository;
+import com.tarikma.app.repository.projection.GuideBookingExportView;
+import com.tarikma.app.repository.projection.GuideBookingStatsView;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
 
 @Service
 public class GuideDashboardService {
 
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+    private static final int EXPORT_PAGE_SIZE = 500;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String[] EXPORT_COLUMNS = {
+            "id", "circuitId", "circuitName", "circuitSessionId",
+            "sessionStartDateTime", "sessionEndDateTime", "sessionStatus",
+            "touristId", "touristName", "touristEmail", "touristPhone",
+            "amountMad", "paymentStatus", "createdAt", "paidAt"
+    };
+
     private final BookingRepository bookingRepository;
     private final CircuitRepository circuitRepository;
     private final CircuitSessionRepository circuitSessionRepository;
     private final UserRepository userRepository;
+    private final GuideDailyStatRepository guideDailyStatRepository;
+    private final CircuitDailyStatRepository circuitDailyStatRepository;
+    private final TransactionTemplate readOnlyTransaction;
 
     public GuideDashboardService(
             BookingRepository bookingRepository,
             CircuitRepository circuitRepository,
             CircuitSessionRepository circuitSessionRepository,
-            UserRepository userRepository
+            UserRepository userRepository,
+            GuideDailyStatRepository guideDailyStatRepository,
+            CircuitDailyStatRepository circuitDailyStatRepository,
+            PlatformTransactionManager transactionManager
     ) {
         this.bookingRepository = bookingRepository;
         this.circuitRepository = circuitRepository;
         this.circuitSessionRepository = circuitSessionRepository;
         this.userRepository = userRepository;
+        this.guideDailyStatRepository = guideDailyStatRepository;
+        this.circuitDailyStatRepository = circuitDailyStatRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     @Transactional(readOnly = true)
@@ -51,44 +91,191 @@ public class GuideDashboardService {
     }
 
     @Transactional(readOnly = true)
-    public GuideDashboardSummary getGuideSummary(String guideEmail) {
-        User guide = userRepository.findByEmail(guideEmail)
+    public Long getGuideId(String guideEmail) {
+        return userRepository.findByEmail(guideEmail)
+                .map(User::getId)
                 .orElseThrow(() -> new NotFoundException("User not found"));
+    }
 
-        List<Booking> bookings = bookingRepository.findByCircuitCreatedByIdOrderByCreatedAtDesc(guide.getId());
-        List<Circuit> circuits = circuitRepository.findByCreatedById(guide.getId());
+    public BookingExportFormat parseExportFormat(String format) {
+        if (format == null || format.isBlank()) {
+            return BookingExportFormat.CSV;
+        }
+        try {
+            return BookingExportFormat.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unsupported export format: " + format);
+        }
+    }
 
-        long totalBookings = bookings.size();
-        long confirmed = bookings.stream().filter(b -> "CONFIRMED".equals(b.getStatus())).count();
-        long pending = bookings.stream().filter(b -> "PENDING".equals(b.getStatus())).count();
+    /**
+     * Writes every booking on the guide's circuits to out, newest first. Rows are read in keyset pages
+     * of EXPORT_PAGE_SIZE, each in its own short read-only transaction, so a slow client holds neither
+     * a connection nor a cursor while the response drains and memory use does not depend on the size
+     * of the history. Pages are not one snapshot: a booking created mid-download is left out, and one
+     * whose row changes may show its newer state.
+     */
+    public void exportGuideBookings(Long guideUserId, BookingExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE);
 
-        BigDecimal totalRevenue = bookings.stream()
-                .filter(b -> "CONFIRMED".equals(b.getStatus()))
-                .map(Booking::getAmountMad)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (format == BookingExportFormat.NDJSON) {
+            try (JsonGenerator g = JSON_FACTORY.createGenerator(writer)) {
+                g.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                forEachExportPage(guideUserId, page -> {
+                    for (GuideBookingExportView b : page) writeNdjsonRow(b, g);
+                });
+            }
+        } else {
+            writer.write(String.join(",", EXPORT_COLUMNS));
+            writer.write("\r\n");
+            forEachExportPage(guideUserId, page -> {
+                for (GuideBookingExportView b : page) writeCsvRow(b, writer);
+            });
+        }
+        writer.flush();
+    }
 
-        long totalTourists = bookings.stream()
-                .map(b -> b.getUser().getId())
-                .distinct()
-                .count();
+    private interface ExportPageWriter {
+        void write(List<GuideBookingExportView> page) throws IOException;
+    }
 
-        long upcomingSessions = circuits.stream()
-                .flatMap(c -> circuitSessionRepository.findByCircuitIdOrderByStartDateTimeAsc(c.getId()).stream())
-                .filter(s -> "SCHEDULED".equals(s.getStatus()) && s.getStartDateTime().isAfter(Instant.now()))
-                .count();
+    private void forEachExportPage(Long guideUserId, ExportPageWriter pageWriter) throws IOException {
+        Instant beforeAt = null;
+        Long beforeId = null;
+        while (true) {
+            List<GuideBookingExportView> page = exportPage(guideUserId, beforeAt, beforeId);
+            pageWriter.write(page);
+            if (page.size() < EXPORT_PAGE_SIZE) return;
+            GuideBookingExportView last = page.getLast();
+            beforeAt = last.getCreatedAt();
+            beforeId = last.getId();
+        }
+    }
+
+    private List<GuideBookingExportView> exportPage(Long guideUserId, Instant beforeAt, Long beforeId) {
+        return readOnlyTransaction.execute(tx ->
+                bookingRepository.findGuideExportPage(guideUserId, beforeAt, beforeId, Limit.of(EXPORT_PAGE_SIZE)));
+    }
+
+    @Transactional(readOnly = true)
+    public GuideDashboardSummary getGuideSummary(String guideEmail) {
+        User guide = userRepository.findByEmail(guideEmail)
+                .orElseThrow(() -> new NotFoundException("User not found"));
+
+        // Aggregated in SQL so the cost does not grow with the guide's booking history
+        GuideBookingStatsView stats = bookingRepository.aggregateForGuide(guide.getId());
+        long totalCircuits = circuitRepository.countByCreatedById(guide.getId());
+        long upcomingSessions = circuitSessionRepository.countScheduledByGuideAfter(guide.getId(), Instant.now());
 
         GuideDashboardSummary summary = new GuideDashboardSummary();
-        summary.setTotalBookings(totalBookings);
-        summary.setConfirmedBookings(confirmed);
-        summary.setPendingBookings(pending);
-        summary.setTotalRevenue(totalRevenue);
-        summary.setTotalTourists(totalTourists);
-        summary.setTotalCircuits(circuits.size());
+        summary.setTotalBookings(stats.getTotalBookings());
+        summary.setConfirmedBookings(stats.getConfirmedBookings());
+        summary.setPendingBookings(stats.getPendingBookings());
+        summary.setTotalRevenue(stats.getTotalRevenue());
+        summary.setTotalTourists(stats.getTotalTourists());
+        summary.setTotalCircuits(totalCircuits);
         summary.setUpcomingSessions(upcomingSessions);
 
         return summary;
     }
 
+    /**
+     * Daily confirmed bookings, revenue and seats for charts, read from the rollup tables.
+     * Days without confirmations are omitted. Pass a circuit id to narrow to one of the guide's circuits.
+     */
+    @Transactional(readOnly = true)
+    public List<GuideDailyStatResponse> getDailyStats(String guideEmail, LocalDate from, LocalDate to, Long circuitId) {
+        if (from.isAfter(to)) {
+            throw new BadRequestException("from must not be after to");
+        }
+
+        User guide = userRepository.findByEmail(guideEmail)
+                .orElseThrow(() -> new NotFoundException("User not found"));
+
+        if (circuitId == null) {
+            return guideDailyStatRepository
+                    .findByGuideIdAndStatDateBetweenOrderByStatDateAsc(guide.getId(), from, to)
+                    .stream()
+                    .map(d -> toDailyStatResponse(d.getStatDate(), d.getConfirmedBookings(), d.getRevenueMad(), d.getSeats()))
+                    .toList();
+        }
+
+        Circuit circuit = circuitRepository.findById(circuitId)
+                .filter(c -> c.getCreatedBy().getId().equals(guide.getId()))
+                .orElseThrow(() -> new NotFoundException("Circuit not found"));
+
+        return circuitDailyStatRepository
+                .findByCircuitIdAndStatDateBetweenOrderByStatDateAsc(circuit.getId(), from, to)
+                .stream()
+                .map(d -> toDailyStatResponse(d.getStatDate(), d.getConfirmedBookings(), d.getRevenueMad(), d.getSeats()))
+                .toList();
+    }
+
+    private void writeCsvRow(GuideBookingExportView b, Writer w) throws IOException {
+        Object[] values = {
+                b.getId(), b.getCircuitId(), b.getCircuitName(), b.getCircuitSessionId(),
+                b.getSessionStartDateTime(), b.getSessionEndDateTime(), b.getSessionStatus(),
+                b.getTouristId(), b.getTouristName(), b.getTouristEmail(), b.getTouristPhone(),
+                b.getAmountMad(), b.getPaymentStatus(), b.getCreatedAt(), b.getPaidAt()
+        };
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) w.write(',');
+            w.write(csvCell(values[i]));
+        }
+        w.write("\r\n");
+    }
+
+    // Quotes per RFC 4180, and defuses text a spreadsheet would evaluate as a formula
+    private static String csvCell(Object value) {
+        if (value == null) return "";
+        String s = value instanceof BigDecimal d ? d.toPlainString() : value.toString();
+        if (value instanceof String && !s.isEmpty() && "=+-@\t\r".indexOf(s.charAt(0)) >= 0) {
+            s = "'" + s;
+        }
+        if (s.indexOf(',') >= 0 || s.indexOf('"') >= 0 || s.indexOf('\n') >= 0 || s.indexOf('\r') >= 0) {
+            return '"' + s.replace("\"", "\"\"") + '"';
+        }
+        return s;
+    }
+
+    private void writeNdjsonRow(GuideBookingExportView b, JsonGenerator g) throws IOException {
+        g.writeStartObject();
+        g.writeNumberField("id", b.getId());
+        g.writeNumberField("circuitId", b.getCircuitId());
+        g.writeStringField("circuitName", b.getCircuitName());
+        g.writeNumberField("circuitSessionId", b.getCircuitSessionId());
+        writeInstantField(g, "sessionStartDateTime", b.getSessionStartDateTime());
+        writeInstantField(g, "sessionEndDateTime", b.getSessionEndDateTime());
+        g.writeStringField("sessionStatus", b.getSessionStatus());
+        g.writeNumberField("touristId", b.getTouristId());
+        g.writeStringField("touristName", b.getTouristName());
+        g.writeStringField("touristEmail", b.getTouristEmail());
+        g.writeStringField("touristPhone", b.getTouristPhone());
+        g.writeNumberField("amountMad", b.getAmountMad());
+        g.writeStringField("paymentStatus", b.getPaymentStatus());
+        writeInstantField(g, "createdAt", b.getCreatedAt());
+        writeInstantField(g, "paidAt", b.getPaidAt());
+        g.writeEndObject();
+        g.writeRaw('\n');
+    }
+
+    private static void writeInstantField(JsonGenerator g, String name, Instant value) throws IOException {
+        if (value == null) {
+            g.writeNullField(name);
+        } else {
+            g.writeStringField(name, value.toString());
+        }
+    }
+
+    private GuideDailyStatResponse toDailyStatResponse(LocalDate date, int confirmed, BigDecimal revenue, int seats) {
+        GuideDailyStatResponse r = new GuideDailyStatResponse();
+        r.setDate(date);
+        r.setConfirmedBookings(confirmed);
+        r.setRevenueMad(revenue);
+        r.setSeats(seats);
+        return r;
+    }
+
     private GuideBookingResponse toGuideBookingResponse(Booking b) {
         CircuitSession session = b.getCircuitSession();
         Circuit circuit = session.getCircuit();
@@ -0,0 +1,278 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.entity.CircuitStop;
+import com.tarikma.app.entity.Place;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds a multi-day itinerary from a city's places without the LLM. Each day is filled greedily
+ * with the visit that adds the most interest per added minute (visit plus detour) until the day's
+ * visiting budget is spent, looping from and back to one hotel when the city has one. Meals go to
+ * the nearest restaurant not yet used that day, {@link StopOrderOptimizer} improves the order, and
+ * a final pass sets time windows from estimated travel.
+ */
+final class ItineraryPlanner {
+
+    private static final int DAY_START = 9 * 60;
+    private static final int VISIT_BUDGET_MINUTES = 7 * 60;
+    private static final int LAST_MINUTE = 23 * 60 + 59;
+    private static final int DEFAULT_VISIT_MINUTES = 60;
+
+    private static final int BREAKFAST_MINUTES = 45;
+    private static final int LUNCH_MINUTES = 75;
+    private static final int DINNER_MINUTES = 90;
+    private static final int LUNCH_NOT_BEFORE = 12 * 60;
+    private static final int DINNER_NOT_BEFORE = 19 * 60;
+    private static final int SLEEP_NOT_BEFORE = 21 * 60;
+
+    private static final double INTEREST_BONUS = 2.0;
+    // Reusing a restaurant from another day is allowed, but only when it saves more than this
+    private static final double REUSED_RESTAURANT_PENALTY_KM = 1.0;
+
+    private static final Map<String, List<String>> INTEREST_CATEGORIES = Map.of(
+            "CULTURE", List.of("HISTORIC", "LANDMARK", "MUSEUM", "RELIGIOUS"),
+            "HISTORY", List.of("HISTORIC", "LANDMARK", "MUSEUM"),
+            "NATURE", List.of("NATURE", "PARK"),
+            "ADVENTURE", List.of("NATURE", "BEACH"),
+            "BEACHES", List.of("BEACH"),
+            "SHOPPING", List.of("SHOPPING"),
+            "FOOD", List.of("MARKET", "SHOPPING"),
+            "NIGHTLIFE", List.of("BAR", "CLUB", "NIGHTLIFE")
+    );
+
+    private static final Map<String, Integer> VISIT_MINUTES = Map.of(
+            "MUSEUM", 90,
+            "HISTORIC", 60,
+            "LANDMARK", 45,
+            "RELIGIOUS", 45,
+            "PARK", 60,
+            "NATURE", 120,
+            "BEACH", 120,
+            "SHOPPING", 60
+    );
+
+    private ItineraryPlanner() {
+    }
+
+    /**
+     * Unsaved stops for numberOfDays days, in visiting order and without a circuit set.
+     */
+    static List<CircuitStop> plan(List<Place> places, int numberOfDays, List<String> interests) {
+        Set<String> wanted = new HashSet<>();
+        for (String interest : interests) {
+            wanted.addAll(INTEREST_CATEGORIES.getOrDefault(interest.trim().toUpperCase(Locale.ROOT), List.of()));
+        }
+
+        List<Place> food = new ArrayList<>();
+        List<Place> lodging = new ArrayList<>();
+        List<Place> sights = new ArrayList<>();
+        for (Place p : places.stream().sorted(Comparator.comparing(Place::getId)).toList()) {
+            String category = category(p);
+            if (category.contains("RESTAURANT") || category.contains("CAFE")) {
+                food.add(p);
+            } else if (category.contains("HOTEL") || category.contains("RIAD") || category.contains("HOSTEL")) {
+                lodging.add(p);
+            } else if (!category.contains("TRANSPORT")) {
+                sights.add(p);
+            }
+        }
+
+        Place hotel = nearest(lodging, sights.isEmpty() ? places : sights, Set.of(), Set.of());
+        Candidates candidates = new Candidates(sights, wanted, hotel);
+        Set<Place> usedFood = new HashSet<>();
+
+        List<CircuitStop> stops = new ArrayList<>();
+        for (int day = 1; day <= numberOfDays; day++) {
+            List<Place> route = candidates.nextDay();
+            for (Place p : route) {
+                stops.add(stop(p, day, "VISIT", null, visitMinutes(p)));
+            }
+
+            if (!food.isEmpty()) {
+                Set<Place> today = new HashSet<>();
+                Place morning = hotel != null ? hotel : (route.isEmpty() ? null : route.getFirst());
+                Place midday = route.isEmpty() ? morning : route.get(route.size() / 2);
+                Place evening = route.isEmpty() ? morning : route.getLast();
+                stops.add(meal(food, morning, today, usedFood, day, "BREAKFAST", BREAKFAST_MINUTES));
+                stops.add(meal(food, midday, today, usedFood, day, "LUNCH", LUNCH_MINUTES));
+                stops.add(meal(food, evening, today, usedFood, day, "DINNER", DINNER_MINUTES));
+            }
+            if (hotel != null) {
+                stops.add(stop(hotel, day, "SLEEP", null, null));
+            }
+        }
+
+        List<CircuitStop> ordered = StopOrderOptimizer.optimize(stops);
+        schedule(ordered, hotel);
+        return ordered;
+    }
+
+    private static CircuitStop meal(List<Place> food, Place near, Set<Place> today, Set<Place> usedFood,
+                                    int day, String mealType, int minutes) {
+        Place p = nearest(food, near != null ? List.of(near) : food, today, usedFood);
+        today.add(p);
+        usedFood.add(p);
+        return stop(p, day, "EAT", mealType, minutes);
+    }
+
+    // Closest option to the centroid of `to`, skipping `exclude` unless nothing else is left
+    private static Place nearest(List<Place> options, List<Place> to, Set<Place> exclude, Set<Place> penalized) {
+        if (options.isEmpty() || to.isEmpty()) {
+            return null;
+        }
+        double lat = to.stream().mapToDouble(Place::getLatitude).average().orElse(0);
+        double lng = to.stream().mapToDouble(Place::getLongitude).average().orElse(0);
+
+        Place best = null;
+        double bestKm = Double.MAX_VALUE;
+        for (Place p : options) {
+            if (exclude.contains(p) && exclude.size() < options.size()) continue;
+            double km = GeoDistance.haversineKm(lat, lng, p.getLatitude(), p.getLongitude())
+                    + (penalized.contains(p) ? REUSED_RESTAURANT_PENALTY_KM : 0);
+            if (km < bestKm) {
+                best = p;
+                bestKm = km;
+            }
+        }
+        return best;
+    }
+
+    private static void schedule(List<CircuitStop> ordered, Place hotel) {
+        Integer day = null;
+        int clock = DAY_START;
+        Place at = hotel;
+
+        for (CircuitStop s : ordered) {
+            if (!s.getDayNumber().equals(day)) {
+                day = s.getDayNumber();
+                clock = DAY_START;
+                at = hotel;
+            }
+
+            int start = at != null ? clock + GeoDistance.estimatedTravelMinutes(at, s.getPlace()) : clock;
+            if ("LUNCH".equals(s.getMealType())) start = Math.max(start, LUNCH_NOT_BEFORE);
+            if ("DINNER".equals(s.getMealType())) start = Math.max(start, DINNER_NOT_BEFORE);
+            if ("SLEEP".equals(s.getStopKind())) start = Math.max(start, SLEEP_NOT_BEFORE);
+            int end = s.getDurationMinutes() != null ? start + s.getDurationMinutes() : LAST_MINUTE;
+
+            // A day that runs past midnight keeps its order but leaves the late stops unscheduled
+            if (end <= LAST_MINUTE && start < end) {
+                s.setStartTime(LocalTime.of(start / 60, start % 60));
+                s.setEndTime(LocalTime.of(end / 60, end % 60));
+            }
+            clock = end;
+            at = s.getPlace();
+        }
+    }
+
+    private static CircuitStop stop(Place place, int day, String kind, String mealType, Integer minutes) {
+        CircuitStop s = new CircuitStop();
+        s.setPlace(place);
+        s.setDayNumber(day);
+        s.setStopKind(kind);
+        s.setMealType(mealType);
+        s.setDurationMinutes(minutes);
+        return s;
+    }
+
+    private static int visitMinutes(Place p) {
+        return VISIT_MINUTES.getOrDefault(category(p), DEFAULT_VISIT_MINUTES);
+    }
+
+    private static String category(Place p) {
+        return p.getCategory() != null ? p.getCategory().trim().toUpperCase(Locale.ROOT) : "";
+    }
+
+    /**
+     * The sights still unplanned, with travel minutes cached per route stop: a stop's column is
+     * computed once when it joins a route, so each insertion step is integer arithmetic only.
+     */
+    private static final class Candidates {
+
+        private final List<Place> sights;
+        private final double[] score;
+        private final int[] minutes;
+        private final int[] fromHotel;
+        private final boolean[] used;
+        private final Map<Integer, int[]> travelFrom = new HashMap<>();
+
+        Candidates(List<Place> sights, Set<String> wanted, Place hotel) {
+            int n = sights.size();
+            this.sights = sights;
+            this.score = new double[n];
+            this.minutes = new int[n];
+            this.fromHotel = new int[n];
+            this.used = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                Place p = sights.get(i);
+                score[i] = 1.0 + (wanted.contains(category(p)) ? INTEREST_BONUS : 0);
+                minutes[i] = visitMinutes(p);
+                fromHotel[i] = hotel != null ? GeoDistance.estimatedTravelMinutes(hotel, p) : 0;
+            }
+        }
+
+        List<Place> nextDay() {
+            List<Integer> route = new ArrayList<>();
+            int spent = 0;
+
+            while (true) {
+                int bestCandidate = -1;
+                int bestPos = -1;
+                int bestAdded = 0;
+                double bestRatio = 0;
+
+                for (int i = 0; i < sights.size(); i++) {
+                    if (used[i]) continue;
+                    for (int pos = 0; pos <= route.size(); pos++) {
+                        int prev = pos > 0 ? route.get(pos - 1) : -1;
+                        int next = pos < route.size() ? route.get(pos) : -1;
+                        int added = minutes[i] + travel(prev, i) + travel(next, i) - travel(prev, next);
+                        if (spent + added > VISIT_BUDGET_MINUTES) continue;
+
+                        double ratio = score[i] / Math.max(1, added);
+                        if (ratio > bestRatio) {
+                            bestRatio = ratio;
+                            bestCandidate = i;
+                            bestPos = pos;
+                            bestAdded = added;
+                        }
+                    }
+                }
+                if (bestCandidate < 0) break;
+
+                route.add(bestPos, bestCandidate);
+                used[bestCandidate] = true;
+                spent += bestAdded;
+                travelFrom.put(bestCandidate, travelColumn(bestCandidate));
+            }
+
+            return route.stream().map(sights::get).toList();
+        }
+
+        // Travel between two route ends; -1 is the hotel (or nothing when there is none)
+        private int travel(int from, int to) {
+            if (from < 0 && to < 0) return 0;
+            if (from < 0) return fromHotel[to];
+            if (to < 0) return fromHotel[from];
+            return travelFrom.get(from)[to];
+        }
+
+        private int[] travelColumn(int from) {
+            int[] column = new int[sights.size()];
+            Place p = sights.get(from);
+            for (int i = 0; i < column.length; i++) {
+                column[i] = GeoDistance.estimatedTravelMinutes(p, sights.get(i));
+            }
+            return column;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.dto.circuit.CircuitPlanningWarningResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of planning warnings keyed by circuit id and tagged with the circuit revision
+ * they were computed for; any stop or route edit bumps the revision and so misses the entry.
+ * The TTL covers changes the revision does not see, such as a place's coordinates being edited.
+ */
+@Component
+public class PlanningWarningsCache {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    private final Map<Long, CachedWarnings> entries;
+
+    public PlanningWarningsCache(
+            @Value("${app.planning.warnings-cache.max-entries:1024}") int maxEntries,
+            @Value("${app.planning.warnings-cache.ttl-seconds:600}") long ttlSeconds
+    ) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedWarnings> eldest) {
+                return size() > PlanningWarningsCache.this.maxEntries;
+            }
+        };
+    }
+
+    public List<CircuitPlanningWarningResponse> get(Long circuitId, long revision,
+                                                    Supplier<List<CircuitPlanningWarningResponse>> loader) {
+        long now = System.nanoTime();
+
+        synchronized (entries) {
+            CachedWarnings cached = entries.get(circuitId);
+            if (cached != null && cached.revision() == revision && now - cached.loadedAt() < ttlNanos) {
+                return cached.warnings();
+            }
+        }
+
+        List<CircuitPlanningWarningResponse> warnings = List.copyOf(loader.get());
+
+        synchronized (entries) {
+            CachedWarnings current = entries.get(circuitId);
+            // A slower load for an older revision must not replace a newer one
+            if (current == null || current.revision() <= revision) {
+                entries.put(circuitId, new CachedWarnings(revision, warnings, now));
+            }
+        }
+        return warnings;
+    }
+
+    private record CachedWarnings(long revision, List<CircuitPlanningWarningResponse> warnings, long loadedAt) {
+    }
+}
@@ -0,0 +1,347 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.entity.CircuitStop;
+import com.tarikma.app.entity.Place;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Deterministic stop ordering from place coordinates. Each day is routed on its own: the visits are
+ * chained by nearest neighbour and then shortened with 2-opt and Or-opt moves, starting from the
+ * breakfast place and ending towards the night's SLEEP stop when the day has them. Meals are then
+ * slotted in where the simulated clock is nearest their meal time, and SLEEP stops close the day.
+ * Stops with a start time keep their relative order; stops never change day.
+ */
+final class StopOrderOptimizer {
+
+    private static final int DAY_START = 9 * 60;
+    private static final int DEFAULT_STOP_MINUTES = 60;
+    private static final int LUNCH_AT = 12 * 60 + 30;
+    private static final int DINNER_AT = 19 * 60 + 30;
+
+    private static final int MAX_OR_OPT_SEGMENT = 3;
+    private static final int MAX_PASSES = 100;
+    private static final double EPS = 1e-9;
+
+    private StopOrderOptimizer() {
+    }
+
+    /**
+     * Returns the stops in optimized order, days ascending with undated stops last.
+     * The input list and the stops themselves are not modified.
+     */
+    static List<CircuitStop> optimize(List<CircuitStop> ordered) {
+        Map<Integer, List<CircuitStop>> byDay = new TreeMap<>(Comparator.nullsLast(Comparator.naturalOrder()));
+        for (CircuitStop s : ordered) {
+            byDay.computeIfAbsent(s.getDayNumber(), d -> new ArrayList<>()).add(s);
+        }
+
+        List<CircuitStop> result = new ArrayList<>(ordered.size());
+        for (List<CircuitStop> day : byDay.values()) {
+            result.addAll(optimizeDay(day));
+        }
+        return result;
+    }
+
+    private static List<CircuitStop> optimizeDay(List<CircuitStop> day) {
+        List<CircuitStop> visits = new ArrayList<>();
+        List<CircuitStop> breakfasts = new ArrayList<>();
+        List<CircuitStop> lunches = new ArrayList<>();
+        List<CircuitStop> dinners = new ArrayList<>();
+        List<CircuitStop> sleeps = new ArrayList<>();
+
+        for (CircuitStop s : day) {
+            if ("SLEEP".equals(s.getStopKind())) {
+                sleeps.add(s);
+            } else if ("EAT".equals(s.getStopKind()) && "BREAKFAST".equals(s.getMealType())) {
+                breakfasts.add(s);
+            } else if ("EAT".equals(s.getStopKind()) && "LUNCH".equals(s.getMealType())) {
+                lunches.add(s);
+            } else if ("EAT".equals(s.getStopKind()) && "DINNER".equals(s.getMealType())) {
+                dinners.add(s);
+            } else {
+                visits.add(s);
+            }
+        }
+
+        Place start = breakfasts.isEmpty() ? null : breakfasts.getLast().getPlace();
+        Place end = sleeps.isEmpty() ? null : sleeps.getFirst().getPlace();
+        List<CircuitStop> route = new VisitRoute(visits, start, end).solve();
+
+        List<CircuitStop> out = new ArrayList<>(day.size());
+        out.addAll(breakfasts);
+
+        int clock = DAY_START;
+        Place at = start;
+        for (CircuitStop s : breakfasts) {
+            clock = finish(s, clock, null);
+        }
+
+        int lunchAt = mealTime(lunches, LUNCH_AT);
+        int dinnerAt = mealTime(dinners, DINNER_AT);
+        for (CircuitStop v : route) {
+            // Eat before v when that lands nearer the meal time than eating after it
+            if (!lunches.isEmpty() && clock + finish(v, clock, at) > 2 * lunchAt) {
+                for (CircuitStop m : lunches) {
+                    clock = finish(m, clock, at);
+                    at = m.getPlace();
+                }
+                out.addAll(lunches);
+                lunches = List.of();
+            }
+            if (!dinners.isEmpty() && lunches.isEmpty() && clock + finish(v, clock, at) > 2 * dinnerAt) {
+                for (CircuitStop m : dinners) {
+                    clock = finish(m, clock, at);
+                    at = m.getPlace();
+                }
+                out.addAll(dinners);
+                dinners = List.of();
+            }
+            clock = finish(v, clock, at);
+            at = v.getPlace();
+            out.add(v);
+        }
+
+        out.addAll(lunches);
+        out.addAll(dinners);
+        out.addAll(sleeps);
+        return out;
+    }
+
+    // Minute of day at which s ends when leaving `from` at `clock`
+    private static int finish(CircuitStop s, int clock, Place from) {
+        int arrival = from != null ? clock + GeoDistance.estimatedTravelMinutes(from, s.getPlace()) : clock;
+        if (s.getStartTime() != null) {
+            arrival = Math.max(arrival, toMinutes(s.getStartTime()));
+        }
+        if (s.getStartTime() != null && s.getEndTime() != null) {
+            return Math.max(arrival, toMinutes(s.getEndTime()));
+        }
+        return arrival + (s.getDurationMinutes() != null ? s.getDurationMinutes() : DEFAULT_STOP_MINUTES);
+    }
+
+    private static int mealTime(List<CircuitStop> meals, int fallback) {
+        return meals.stream()
+                .map(CircuitStop::getStartTime)
+                .filter(t -> t != null)
+                .findFirst()
+                .map(StopOrderOptimizer::toMinutes)
+                .orElse(fallback);
+    }
+
+    private static int toMinutes(LocalTime t) {
+        return t.getHour() * 60 + t.getMinute();
+    }
+
+    /**
+     * An open path through one day's visits, optionally pinned to a start and an end place.
+     * Nodes are indexes into the visits sorted by id, so the result depends only on which stops
+     * the day has and optimizing twice changes nothing; START and END stand for the pinned places.
+     */
+    private static final class VisitRoute {
+
+        private static final int START = -1;
+        private static final int END = -2;
+
+        private final List<CircuitStop> current;
+        private final List<CircuitStop> visits;
+        private final int n;
+        private final double[][] dist;
+        private final double[] fromStart;
+        private final double[] toEnd;
+        private final int[] startMinute;
+        private final boolean timed;
+
+        VisitRoute(List<CircuitStop> current, Place start, Place end) {
+            this.current = current;
+            this.visits = current.stream()
+                    .sorted(Comparator.comparing(CircuitStop::getId, Comparator.nullsLast(Comparator.naturalOrder())))
+                    .toList();
+            this.n = visits.size();
+            this.dist = new double[n][n];
+            this.fromStart = new double[n];
+            this.toEnd = new double[n];
+            this.startMinute = new int[n];
+
+            boolean anyTimed = false;
+            for (int i = 0; i < n; i++) {
+                Place p = visits.get(i).getPlace();
+                for (int j = i + 1; j < n; j++) {
+                    dist[i][j] = dist[j][i] = GeoDistance.placeKm(p, visits.get(j).getPlace());
+                }
+                fromStart[i] = start != null ? GeoDistance.placeKm(start, p) : 0;
+                toEnd[i] = end != null ? GeoDistance.placeKm(p, end) : 0;
+
+                LocalTime t = visits.get(i).getStartTime();
+                startMinute[i] = t != null ? toMinutes(t) : -1;
+                anyTimed |= t != null;
+            }
+            this.timed = anyTimed;
+        }
+
+        /**
+         * The optimized visit order, or the current one when it is already as short.
+         */
+        List<CircuitStop> solve() {
+            if (n < 2) {
+                return current;
+            }
+
+            int[] path = nearestNeighbour();
+            for (int pass = 0; pass < MAX_PASSES; pass++) {
+                boolean improved = twoOpt(path);
+                improved |= orOpt(path);
+                if (!improved) break;
+            }
+
+            int[] currentPath = new int[n];
+            for (int k = 0; k < n; k++) {
+                currentPath[k] = visits.indexOf(current.get(k));
+            }
+            if (respectsStartTimes(currentPath) && length(path) >= length(currentPath) - EPS) {
+                return current;
+            }
+
+            List<CircuitStop> out = new ArrayList<>(n);
+            for (int i : path) {
+                out.add(visits.get(i));
+            }
+            return out;
+        }
+
+        private int[] nearestNeighbour() {
+            int[] path = new int[n];
+            boolean[] used = new boolean[n];
+            int current = START;
+
+            for (int k = 0; k < n; k++) {
+                int nextTimed = earliestUnusedStart(used);
+                int best = -1;
+                for (int i = 0; i < n; i++) {
+                    if (used[i] || (startMinute[i] >= 0 && startMinute[i] > nextTimed)) continue;
+                    if (best < 0 || edge(current, i) < edge(current, best) - EPS) {
+                        best = i;
+                    }
+                }
+                path[k] = best;
+                used[best] = true;
+                current = best;
+            }
+            return path;
+        }
+
+        private int earliestUnusedStart(boolean[] used) {
+            int earliest = Integer.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                if (!used[i] && startMinute[i] >= 0) {
+                    earliest = Math.min(earliest, startMinute[i]);
+                }
+            }
+            return earliest;
+        }
+
+        // Reverses path[i..j] whenever that shortens the route
+        private boolean twoOpt(int[] path) {
+            boolean improved = false;
+            for (int i = 0; i < n - 1; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    int before = i == 0 ? START : path[i - 1];
+                    int after = j == n - 1 ? END : path[j + 1];
+                    double delta = edge(before, path[j]) + edge(path[i], after)
+                            - edge(before, path[i]) - edge(path[j], after);
+                    if (delta >= -EPS) continue;
+
+                    reverse(path, i, j);
+                    if (respectsStartTimes(path)) {
+                        improved = true;
+                    } else {
+                        reverse(path, i, j);
+                    }
+                }
+            }
+            return improved;
+        }
+
+        // Moves a run of up to MAX_OR_OPT_SEGMENT stops to the gap where it adds the least distance
+        private boolean orOpt(int[] path) {
+            boolean improved = false;
+            for (int len = 1; len <= MAX_OR_OPT_SEGMENT && len < n; len++) {
+                for (int i = 0; i + len <= n; i++) {
+                    int first = path[i];
+                    int last = path[i + len - 1];
+                    int before = i == 0 ? START : path[i - 1];
+                    int after = i + len == n ? END : path[i + len];
+                    double removed = edge(before, first) + edge(last, after) - edge(before, after);
+
+                    int[] rest = new int[n - len];
+                    System.arraycopy(path, 0, rest, 0, i);
+                    System.arraycopy(path, i + len, rest, i, n - i - len);
+
+                    int bestGap = -1;
+                    double bestDelta = -EPS;
+                    for (int g = 0; g <= rest.length; g++) {
+                        if (g == i) continue;
+                        int a = g == 0 ? START : rest[g - 1];
+                        int b = g == rest.length ? END : rest[g];
+                        double delta = edge(a, first) + edge(last, b) - edge(a, b) - removed;
+                        if (delta < bestDelta && (!timed || respectsStartTimes(insert(rest, g, path, i, len)))) {
+                            bestDelta = delta;
+                            bestGap = g;
+                        }
+                    }
+                    if (bestGap >= 0) {
+                        System.arraycopy(insert(rest, bestGap, path, i, len), 0, path, 0, n);
+                        improved = true;
+                    }
+                }
+            }
+            return improved;
+        }
+
+        private static int[] insert(int[] rest, int gap, int[] path, int from, int len) {
+            int[] out = new int[rest.length + len];
+            System.arraycopy(rest, 0, out, 0, gap);
+            System.arraycopy(path, from, out, gap, len);
+            System.arraycopy(rest, gap, out, gap + len, rest.length - gap);
+            return out;
+        }
+
+        private boolean respectsStartTimes(int[] path) {
+            if (!timed) return true;
+            int last = -1;
+            for (int i : path) {
+                if (startMinute[i] < 0) continue;
+                if (startMinute[i] < last) return false;
+                last = startMinute[i];
+            }
+            return true;
+        }
+
+        private double length(int[] path) {
+            double total = edge(START, path[0]) + edge(path[n - 1], END);
+            for (int k = 1; k < n; k++) {
+                total += edge(path[k - 1], path[k]);
+            }
+            return total;
+        }
+
+        private double edge(int from, int to) {
+            if (from == START) return to == END ? 0 : fromStart[to];
+            if (to == END) return toEnd[from];
+            return dist[from][to];
+        }
+
+        private static void reverse(int[] path, int i, int j) {
+            for (; i < j; i++, j--) {
+                int tmp = path[i];
+                path[i] = path[j];
+                path[j] = tmp;
+            }
+        }
+    }
+}
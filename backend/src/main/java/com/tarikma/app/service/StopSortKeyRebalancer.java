@@ -0,0 +1,35 @@
+package com.tarikma.app.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Respaces circuits whose stop sort keys have been split down to small gaps by repeated inserts
+ * and moves, so that edits keep finding room between neighbours without rewriting the circuit inline.
+ */
+@Component
+public class StopSortKeyRebalancer {
+
+    // 1/1024 of the initial gap: halving 64 leaves room for about six more inserts at the same spot
+    private static final long MIN_GAP = StopSortKeys.GAP / 1024;
+
+    private final CircuitService circuitService;
+    private final int batchSize;
+
+    public StopSortKeyRebalancer(
+            CircuitService circuitService,
+            @Value("${app.circuits.sort-key-rebalance-batch-size:50}") int batchSize
+    ) {
+        this.circuitService = circuitService;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.circuits.sort-key-rebalance-ms:3600000}")
+    public void rebalance() {
+        // One short transaction per circuit; the circuit lock keeps concurrent stop edits out
+        for (Long circuitId : circuitService.findCircuitsToRespace(MIN_GAP, batchSize)) {
+            circuitService.respaceStopSortKeys(circuitId);
+        }
+    }
+}
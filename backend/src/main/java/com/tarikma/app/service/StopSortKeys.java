@@ -0,0 +1,107 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.entity.CircuitStop;
+
+import java.util.List;
+
+/**
+ * Sparse ordering keys for circuit stops. Keys only need to increase along the stop list, so an
+ * insert or move takes a key between its new neighbours and leaves every other stop untouched.
+ */
+final class StopSortKeys {
+
+    static final long GAP = 1L << 16;
+
+    private StopSortKeys() {
+    }
+
+    /**
+     * Gives every stop in ordered a key consistent with its list position while changing as few keys
+     * as possible: the longest already-increasing run of existing keys is kept, and the other stops
+     * (new ones have a null key) are spaced evenly into the gaps around them. If a gap has run out,
+     * the whole list is respaced.
+     */
+    static void assign(List<CircuitStop> ordered) {
+        int n = ordered.size();
+        boolean[] keep = longestIncreasingKeys(ordered);
+
+        int i = 0;
+        while (i < n) {
+            if (keep[i]) {
+                i++;
+                continue;
+            }
+            int j = i;
+            while (j < n && !keep[j]) j++;
+
+            Long lo = i > 0 ? ordered.get(i - 1).getSortKey() : null;
+            Long hi = j < n ? ordered.get(j).getSortKey() : null;
+            if (!fill(ordered, i, j, lo, hi)) {
+                respace(ordered);
+                return;
+            }
+            i = j;
+        }
+    }
+
+    static void respace(List<CircuitStop> ordered) {
+        for (int i = 0; i < ordered.size(); i++) {
+            ordered.get(i).setSortKey((i + 1) * GAP);
+        }
+    }
+
+    private static boolean fill(List<CircuitStop> ordered, int from, int to, Long lo, Long hi) {
+        int count = to - from;
+        long base;
+        long step;
+        if (lo == null && hi == null) {
+            base = 0;
+            step = GAP;
+        } else if (lo == null) {
+            base = hi - (count + 1) * GAP;
+            step = GAP;
+        } else if (hi == null) {
+            base = lo;
+            step = GAP;
+        } else {
+            base = lo;
+            step = (hi - lo) / (count + 1);
+            if (step < 1) return false;
+        }
+
+        for (int k = 0; k < count; k++) {
+            ordered.get(from + k).setSortKey(base + (k + 1) * step);
+        }
+        return true;
+    }
+
+    // Patience sorting over the stops that already have keys; O(n log n)
+    private static boolean[] longestIncreasingKeys(List<CircuitStop> ordered) {
+        int n = ordered.size();
+        int[] tails = new int[n];
+        int[] prev = new int[n];
+        int len = 0;
+
+        for (int i = 0; i < n; i++) {
+            Long key = ordered.get(i).getSortKey();
+            if (key == null) continue;
+
+            int lo = 0;
+            int hi = len;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (ordered.get(tails[mid]).getSortKey() < key) lo = mid + 1;
+                else hi = mid;
+            }
+            prev[i] = lo > 0 ? tails[lo - 1] : -1;
+            tails[lo] = i;
+            if (lo == len) len++;
+        }
+
+        boolean[] keep = new boolean[n];
+        for (int i = len > 0 ? tails[len - 1] : -1; i >= 0; i = prev[i]) {
+            keep[i] = true;
+        }
+        return keep;
+    }
+}
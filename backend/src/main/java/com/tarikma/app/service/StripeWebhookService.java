@@ -0,0 +1,155 @@
+package com.tarikma.app.service;
+
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.model.Event;
+import com.stripe.model.checkout.Session;
+import com.stripe.net.Webhook;
+import com.tarikma.app.entity.StripeWebhookEvent;
+import com.tarikma.app.exception.BadRequestException;
+import com.tarikma.app.repository.StripeWebhookEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stripe webhook inbox: requests are verified and stored, then applied by {@link StripeWebhookWorker}.
+ * The checkout fields a booking update needs are extracted on ingest; the raw payload is kept for audit.
+ */
+@Service
+public class StripeWebhookService {
+
+    private static final Logger log = LoggerFactory.getLogger(StripeWebhookService.class);
+
+    private static final Set<String> HANDLED_TYPES = Set.of(
+            "checkout.session.completed",
+            "checkout.session.expired"
+    );
+
+    // A claimed event is retried once its lease runs out, even if the worker died mid-way
+    private static final Duration LEASE = Duration.ofMinutes(1);
+    private static final int MAX_ATTEMPTS = 10;
+
+    private final StripeWebhookEventRepository webhookEventRepository;
+    private final BookingService bookingService;
+
+    @Value("${app.stripe.webhook-secret:}")
+    private String stripeWebhookSecret;
+
+    public StripeWebhookService(
+            StripeWebhookEventRepository webhookEventRepository,
+            BookingService bookingService
+    ) {
+        this.webhookEventRepository = webhookEventRepository;
+        this.bookingService = bookingService;
+    }
+
+    /**
+     * Verifies the signature and stores the event. A redelivered event id is acknowledged and dropped.
+     */
+    @Transactional
+    public void ingest(String payload, String sigHeader) {
+        if (stripeWebhookSecret == null || stripeWebhookSecret.isBlank()) {
+            log.warn("Stripe webhook secret not configured, skipping verification");
+            return;
+        }
+
+        Event event;
+        try {
+            event = Webhook.constructEvent(payload, sigHeader, stripeWebhookSecret);
+        } catch (SignatureVerificationException e) {
+            log.error("Stripe webhook signature verification failed", e);
+            throw new BadRequestException("Invalid webhook signature");
+        } catch (Exception e) {
+            log.error("Stripe webhook parsing failed", e);
+            throw new BadRequestException("Invalid webhook payload");
+        }
+
+        if (!HANDLED_TYPES.contains(event.getType())) {
+            return;
+        }
+
+        Session stripeSession = (Session) event.getDataObjectDeserializer()
+                .getObject()
+                .orElse(null);
+
+        if (stripeSession == null) {
+            log.warn("Could not deserialize checkout session from Stripe event {}", event.getId());
+            return;
+        }
+
+        int inserted = webhookEventRepository.insertIfAbsent(
+                event.getId(),
+                event.getType(),
+                stripeSession.getId(),
+                stripeSession.getPaymentIntent(),
+                metadataBookingId(stripeSession),
+                payload);
+        if (inserted == 0) {
+            log.info("Duplicate Stripe event {} ignored", event.getId());
+        }
+    }
+
+    /**
+     * Leases a batch of due events to the caller. SKIP LOCKED keeps concurrent pollers apart.
+     */
+    @Transactional
+    public List<String> claimDue(int batchSize) {
+        Instant now = Instant.now();
+        List<String> eventIds = webhookEventRepository.lockDueEventIds(now, batchSize);
+        if (!eventIds.isEmpty()) {
+            webhookEventRepository.lease(eventIds, now.plus(LEASE));
+        }
+        return eventIds;
+    }
+
+    /**
+     * Applies one stored event. The booking change and processed_at commit together.
+     */
+    @Transactional
+    public void process(String eventId) {
+        StripeWebhookEvent stored = webhookEventRepository.findById(eventId).orElse(null);
+        if (stored == null || stored.getProcessedAt() != null) {
+            return;
+        }
+
+        bookingService.applyCheckoutEvent(
+                stored.getEventType(),
+                stored.getCheckoutSessionId(),
+                stored.getPaymentIntentId(),
+                stored.getBookingId());
+        stored.setProcessedAt(Instant.now());
+    }
+
+    private Long metadataBookingId(Session stripeSession) {
+        String bookingId = stripeSession.getMetadata() != null ? stripeSession.getMetadata().get("booking_id") : null;
+        if (bookingId == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(bookingId);
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed booking_id metadata on checkout {}", stripeSession.getId());
+            return null;
+        }
+    }
+
+    @Transactional
+    public void recordFailure(String eventId, String error) {
+        webhookEventRepository.findById(eventId).ifPresent(stored -> {
+            stored.setLastError(error);
+            if (stored.getAttempts() >= MAX_ATTEMPTS) {
+                log.error("Giving up on Stripe event {} after {} attempts: {}", eventId, stored.getAttempts(), error);
+                stored.setProcessedAt(Instant.now());
+            } else {
+                stored.setNextAttemptAt(Instant.now().plus(LEASE.multipliedBy(stored.getAttempts())));
+            }
+        });
+    }
+}
@@ -0,0 +1,65 @@
+package com.tarikma.app.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Drains the Stripe webhook inbox in batches on a small worker pool.
+ */
+@Component
+public class StripeWebhookWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(StripeWebhookWorker.class);
+
+    private final StripeWebhookService webhookService;
+    private final int batchSize;
+    private final ExecutorService workers;
+
+    public StripeWebhookWorker(
+            StripeWebhookService webhookService,
+            @Value("${app.stripe.webhook-batch-size:50}") int batchSize,
+            @Value("${app.stripe.webhook-workers:4}") int workerCount
+    ) {
+        this.webhookService = webhookService;
+        this.batchSize = batchSize;
+        this.workers = Executors.newFixedThreadPool(workerCount);
+    }
+
+    @Scheduled(fixedDelayString = "${app.stripe.webhook-poll-ms:1000}")
+    public void drain() throws InterruptedException {
+        List<String> eventIds;
+        do {
+            eventIds = webhookService.claimDue(batchSize);
+            List<Callable<Void>> tasks = eventIds.stream()
+                    .map(id -> (Callable<Void>) () -> {
+                        processOne(id);
+                        return null;
+                    })
+                    .toList();
+            workers.invokeAll(tasks);
+        } while (eventIds.size() == batchSize);
+    }
+
+    private void processOne(String eventId) {
+        try {
+            webhookService.process(eventId);
+        } catch (RuntimeException e) {
+            log.warn("Stripe event {} failed: {}", eventId, e.getMessage());
+            webhookService.recordFailure(eventId, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,118 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.dto.admin.CacheStatsResponse;
+import com.tarikma.app.dto.tour.TourSummaryResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of public catalog listings keyed by city id (null = all cities).
+ * Entries are dropped by {@link #invalidateCity(Long)} when a catalog row changes;
+ * the TTL only caps how long a listing can survive a missed invalidation.
+ */
+@Component
+public class TourCatalogCache {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    private final Map<Long, CachedListing> entries;
+
+    // Bumped on every invalidation so a load that raced with a write is not stored
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public TourCatalogCache(
+            @Value("${app.tour-catalog.cache.max-entries:256}") int maxEntries,
+            @Value("${app.tour-catalog.cache.ttl-seconds:300}") long ttlSeconds
+    ) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedListing> eldest) {
+                if (size() > TourCatalogCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public List<TourSummaryResponse> get(Long cityId, Supplier<List<TourSummaryResponse>> loader) {
+        Long key = keyOf(cityId);
+        long now = System.nanoTime();
+
+        synchronized (entries) {
+            CachedListing cached = entries.get(key);
+            if (cached != null) {
+                if (now - cached.loadedAt() < ttlNanos) {
+                    hits.increment();
+                    return cached.tours();
+                }
+                entries.remove(key);
+                expirations.increment();
+            }
+        }
+
+        misses.increment();
+        long loadGeneration = generation.get();
+        List<TourSummaryResponse> tours = loader.get();
+
+        synchronized (entries) {
+            if (generation.get() == loadGeneration) {
+                entries.put(key, new CachedListing(tours, now));
+            }
+        }
+        return tours;
+    }
+
+    /**
+     * Drops the listing for the given city and the all-cities listing.
+     */
+    public void invalidateCity(Long cityId) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.remove(keyOf(cityId));
+            entries.remove(keyOf(null));
+        }
+        invalidations.increment();
+    }
+
+    public CacheStatsResponse stats() {
+        CacheStatsResponse r = new CacheStatsResponse();
+        synchronized (entries) {
+            r.setSize(entries.size());
+        }
+        r.setMaxEntries(maxEntries);
+        r.setTtlSeconds(Duration.ofNanos(ttlNanos).toSeconds());
+        r.setHits(hits.sum());
+        r.setMisses(misses.sum());
+        r.setEvictions(evictions.sum());
+        r.setExpirations(expirations.sum());
+        r.setInvalidations(invalidations.sum());
+        return r;
+    }
+
+    private static Long keyOf(Long cityId) {
+        // City ids come from a BIGSERIAL, so 0 never collides with a real city
+        return cityId == null ? 0L : cityId;
+    }
+
+    private record CachedListing(List<TourSummaryResponse> tours, long loadedAt) {
+    }
+}
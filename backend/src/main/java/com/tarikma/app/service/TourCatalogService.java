@@ -0,0 +1,131 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.entity.TourCatalogEntry;
+import com.tarikma.app.repository.CircuitRepository;
+import com.tarikma.app.repository.TourCatalogRepository;
+import com.tarikma.app.repository.projection.TourSummaryView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Maintains the denormalized tour_catalog read model.
+ * Writers call {@link #refresh(Long)} inside their own transaction after changing
+ * a circuit, its stops or its sessions, so the row commits together with the change.
+ */
+@Service
+public class TourCatalogService {
+
+    private static final Logger log = LoggerFactory.getLogger(TourCatalogService.class);
+
+    private final TourCatalogRepository tourCatalogRepository;
+    private final CircuitRepository circuitRepository;
+    private final TourCatalogCache tourCatalogCache;
+
+    public TourCatalogService(
+            TourCatalogRepository tourCatalogRepository,
+            CircuitRepository circuitRepository,
+            TourCatalogCache tourCatalogCache
+    ) {
+        this.tourCatalogRepository = tourCatalogRepository;
+        this.circuitRepository = circuitRepository;
+        this.tourCatalogCache = tourCatalogCache;
+    }
+
+    @Transactional
+    public void refresh(Long circuitId) {
+        Optional<TourSummaryView> summary = circuitRepository.findTourSummaryByCircuitId(circuitId);
+        Optional<TourCatalogEntry> existing = tourCatalogRepository.findById(circuitId);
+
+        if (summary.isEmpty()) {
+            // Deleted or unpriced circuits are not tours
+            existing.ifPresent(entry -> {
+                tourCatalogRepository.delete(entry);
+                invalidateAfterCommit(entry.getCityId());
+            });
+            return;
+        }
+
+        TourSummaryView v = summary.get();
+        TourCatalogEntry entry = existing.orElseGet(() -> new TourCatalogEntry(circuitId));
+
+        entry.setCityId(v.getCityId());
+        entry.setName(v.getName());
+        entry.setNotes(v.getNotes());
+        entry.setPriceMad(v.getPriceMad());
+        entry.setCityName(v.getCityName());
+        entry.setGuideName(v.getGuideName());
+        entry.setStopCount(v.getStopCount().intValue());
+        entry.setUpcomingSessionCount(v.getUpcomingSessionCount().intValue());
+        entry.setNextSessionAt(v.getNextSessionAt());
+        entry.setUpdatedAt(Instant.now());
+        tourCatalogRepository.save(entry);
+        invalidateAfterCommit(entry.getCityId());
+    }
+
+    /**
+     * Deleting a circuit or city removes its catalog rows through the database cascade, so
+     * {@link #refresh(Long)} never sees them; callers name the city whose listing to drop instead.
+     */
+    public void cityListingChanged(Long cityId) {
+        invalidateAfterCommit(cityId);
+    }
+
+    /**
+     * City names are copied into the catalog, so renaming a city rewrites its tours.
+     */
+    @Transactional
+    public void refreshCity(Long cityId) {
+        for (Long circuitId : tourCatalogRepository.findCircuitIdsByCityId(cityId)) {
+            refresh(circuitId);
+        }
+    }
+
+    /**
+     * Guide names are copied into the catalog, so renaming a user rewrites the tours they created.
+     */
+    @Transactional
+    public void refreshGuide(Long userId) {
+        for (Long circuitId : tourCatalogRepository.findCircuitIdsByGuideUserId(userId)) {
+            refresh(circuitId);
+        }
+    }
+
+    /**
+     * Sessions move into the past without any write, so rows whose next session
+     * has started are recomputed periodically.
+     */
+    @Scheduled(fixedDelayString = "${app.tour-catalog.stale-refresh-ms:60000}")
+    @Transactional
+    public void refreshStaleEntries() {
+        List<Long> stale = tourCatalogRepository.findCircuitIdsWithPastNextSession(Instant.now());
+        if (stale.isEmpty()) return;
+
+        for (Long circuitId : stale) {
+            refresh(circuitId);
+        }
+        log.info("Refreshed {} stale tour catalog entries", stale.size());
+    }
+
+    private void invalidateAfterCommit(Long cityId) {
+        // Evicting before commit would let a concurrent reader cache the old rows again
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            tourCatalogCache.invalidateCity(cityId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                tourCatalogCache.invalidateCity(cityId);
+            }
+        });
+    }
+}
@@ -1,131 +1,198 @@
 package com.tarikma.app.service;
 
+import com.tarikma.app.dto.CursorPage;
 import com.tarikma.app.dto.circuit.CircuitStopResponse;
 import com.tarikma.app.dto.tour.TourDetailResponse;
 import com.tarikma.app.dto.tour.TourSessionResponse;
 import com.tarikma.app.dto.tour.TourSummaryResponse;
-import com.tarikma.app.entity.Circuit;
 import com.tarikma.app.entity.CircuitSession;
 import com.tarikma.app.entity.CircuitStop;
-import com.tarikma.app.entity.CityName;
 import com.tarikma.app.entity.Place;
+import com.tarikma.app.entity.TourCatalogEntry;
+import com.tarikma.app.exception.BadRequestException;
 import com.tarikma.app.exception.NotFoundException;
 import com.tarikma.app.entity.User;
 import com.tarikma.app.repository.BookingRepository;
-import com.tarikma.app.repository.CircuitRepository;
 import com.tarikma.app.repository.CircuitSessionRepository;
-import com.tarikma.app.repository.CircuitStopRepository;
+import com.tarikma.app.repository.TourCatalogRepository;
 import com.tarikma.app.repository.UserRepository;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.Instant;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class TourService {
 
-    private final CircuitRepository circuitRepository;
-    private final CircuitStopRepository circuitStopRepository;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final TourCatalogRepository tourCatalogRepository;
     private final CircuitSessionRepository circuitSessionRepository;
     private final BookingRepository bookingRepository;
     private final UserRepository userRepository;
+    private final TourCatalogCache tourCatalogCache;
+    private final CircuitAggregateLoader circuitAggregateLoader;
 
     public TourService(
-            CircuitRepository circuitRepository,
-            CircuitStopRepository circuitStopRepository,
+            TourCatalogRepository tourCatalogRepository,
             CircuitSessionRepository circuitSessionRepository,
             BookingRepository bookingRepository,
-            UserRepository userRepository
+            UserRepository userRepository,
+            TourCatalogCache tourCatalogCache,
+            CircuitAggregateLoader circuitAggregateLoader
     ) {
-        this.circuitRepository = circuitRepository;
-        this.circuitStopRepository = circuitStopRepository;
+        this.tourCatalogRepository = tourCatalogRepository;
         this.circuitSessionRepository = circuitSessionRepository;
         this.bookingRepository = bookingRepository;
         this.userRepository = userRepository;
+        this.tourCatalogCache = tourCatalogCache;
+        this.circuitAggregateLoader = circuitAggregateLoader;
     }
 
-    @Transactional(readOnly = true)
-    public List<TourSummaryResponse> listTours(Long cityId) {
-        List<Circuit> circuits = cityId != null
-                ? circuitRepository.findPublishedToursByCityId(cityId)
-                : circuitRepository.findPublishedTours();
-
-        Instant now = Instant.now();
-
-        return circuits.stream()
-                .map(c -> {
-                    List<CircuitSession> upcoming = circuitSessionRepository
-                            .findByCircuitIdOrderByStartDateTimeAsc(c.getId())
-                            .stream()
-                            .filter(s -> "SCHEDULED".equals(s.getStatus()) && s.getStartDateTime().isAfter(now))
-                            .toList();
-
-                    TourSummaryResponse r = new TourSummaryResponse();
-                    r.setId(c.getId());
-                    r.setName(c.getName());
-                    r.setNotes(c.getNotes());
-                    r.setPriceMad(c.getPriceMad());
-                    r.setCityId(c.getCity().getId());
-                    r.setCityName(getPrimaryCityName(c));
-                    r.setStopCount(circuitStopRepository.countByCircuitId(c.getId()));
-                    r.setGuideName(c.getCreatedBy().getFullName());
-                    r.setUpcomingSessionCount(upcoming.size());
-                    if (!upcoming.isEmpty()) {
-                        r.setNextSessionAt(upcoming.getFirst().getStartDateTime());
-                    }
-                    return r;
-                })
-                .sorted(Comparator.comparing(
-                        TourSummaryResponse::getNextSessionAt,
-                        Comparator.nullsLast(Comparator.naturalOrder())
-                ))
+    /**
+     * One page of the public catalog ordered by next session time, then id.
+     * Without a limit every matching tour is returned, as the catalog page expects.
+     * The unfiltered, unlimited listing of each city is served from {@link TourCatalogCache}.
+     * Not @Transactional: cache hits must not check out a database connection.
+     */
+    public CursorPage<TourSummaryResponse> listTours(
+            Long cityId,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            Instant from,
+            Instant to,
+            String cursor,
+            Integer limit
+    ) {
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new BadRequestException("minPrice must not exceed maxPrice");
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new BadRequestException("from must be before to");
+        }
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        boolean cacheable = after == null && limit == null
+                && minPrice == null && maxPrice == null && from == null && to == null;
+
+        // One extra row tells us whether another page exists
+        Limit rowLimit = limit != null ? Limit.of(limit + 1) : Limit.unlimited();
+        List<TourSummaryResponse> rows = cacheable
+                ? tourCatalogCache.get(cityId, () -> loadPage(cityId, null, null, null, null, null, rowLimit))
+                : loadPage(cityId, minPrice, maxPrice, from, to, after, rowLimit);
+
+        if (limit == null || rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<TourSummaryResponse> page = rows.subList(0, limit);
+        TourSummaryResponse last = page.get(limit - 1);
+        return new CursorPage<>(page, new KeysetCursor(last.getNextSessionAt(), last.getId()).encode());
+    }
+
+    private List<TourSummaryResponse> loadPage(
+            Long cityId,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            Instant from,
+            Instant to,
+            KeysetCursor after,
+            Limit limit
+    ) {
+        return tourCatalogRepository.findListedPage(
+                        cityId,
+                        minPrice,
+                        maxPrice,
+                        from,
+                        to,
+                        after != null ? after.at() : null,
+                        after != null ? after.id() : null,
+                        limit)
+                .stream()
+                .map(this::toTourSummaryResponse)
                 .toList();
     }
 
     @Transactional(readOnly = true)
     public TourDetailResponse getTourDetail(Long circuitId, String userEmail) {
-        Circuit circuit = circuitRepository.findById(circuitId)
+        TourCatalogEntry tour = tourCatalogRepository.findById(circuitId)
                 .orElseThrow(() -> new NotFoundException("Tour not found"));
 
-        if (circuit.getPriceMad() == null) {
-            throw new NotFoundException("Tour not found");
-        }
-
-        Instant now = Instant.now();
-
-        List<CircuitStop> stops = circuitStopRepository.findByCircuitIdOrderByPositionAsc(circuitId);
+        List<CircuitStop> stops = circuitAggregateLoader.loadStops(circuitId);
         List<CircuitSession> sessions = circuitSessionRepository
-                .findByCircuitIdOrderByStartDateTimeAsc(circuitId)
-                .stream()
-                .filter(s -> "SCHEDULED".equals(s.getStatus()) && s.getStartDateTime().isAfter(now))
-                .toList();
+                .findByCircuitIdAndStatusAndStartDateTimeAfterOrderByStartDateTimeAsc(
+                        circuitId, "SCHEDULED", Instant.now());
 
         TourDetailResponse r = new TourDetailResponse();
-        r.setId(circuit.getId());
-        r.setName(circuit.getName());
-        r.setNotes(circuit.getNotes());
-        r.setPriceMad(circuit.getPriceMad());
-        r.setCityId(circuit.getCity().getId());
-        r.setCityName(getPrimaryCityName(circuit));
-        r.setGuideName(circuit.getCreatedBy().getFullName());
-        Long userId = null;
-        if (userEmail != null) {
-            userId = userRepository.findByEmail(userEmail).map(User::getId).orElse(null);
+        r.setId(tour.getCircuitId());
+        r.setName(tour.getName());
+        r.setNotes(tour.getNotes());
+        r.setPriceMad(tour.getPriceMad());
+        r.setCityId(tour.getCityId());
+        r.setCityName(tour.getCityName());
+        r.setGuideName(tour.getGuideName());
+
+        // Availability for every session in two queries instead of two per session
+        Map<Long, Long> confirmedBySession = new HashMap<>();
+        if (!sessions.isEmpty()) {
+            bookingRepository.countByCircuitIdAndStatusGroupBySession(circuitId, "CONFIRMED")
+                    .forEach(v -> confirmedBySession.put(v.getSessionId(), v.getBookedCount()));
         }
-        final Long resolvedUserId = userId;
 
-        r.setStops(stops.stream().map(this::toStopResponse).toList());
-        r.setSessions(sessions.stream().map(s -> toTourSessionResponse(s, resolvedUserId)).toList());
+        Set<Long> userSessionIds = Set.of();
+        if (userEmail != null && !sessions.isEmpty()) {
+            Long userId = userRepository.findByEmail(userEmail).map(User::getId).orElse(null);
+            if (userId != null) {
+                userSessionIds = new HashSet<>(
+                        bookingRepository.findSessionIdsByCircuitIdAndUserId(circuitId, userId));
+            }
+        }
+        final Set<Long> bookedByUser = userSessionIds;
 
+        List<CircuitStopResponse> stopResponses = new ArrayList<>(stops.size());
+        for (int i = 0; i < stops.size(); i++) {
+            stopResponses.add(toStopResponse(stops.get(i), i + 1));
+        }
+        r.setStops(stopResponses);
+        r.setSessions(sessions.stream()
+                .map(s -> toTourSessionResponse(
+                        s,
+                        confirmedBySession.getOrDefault(s.getId(), 0L),
+                        bookedByUser.contains(s.getId())))
+                .toList());
+
+        return r;
+    }
+
+    private TourSummaryResponse toTourSummaryResponse(TourCatalogEntry t) {
+        TourSummaryResponse r = new TourSummaryResponse();
+        r.setId(t.getCircuitId());
+        r.setName(t.getName());
+        r.setNotes(t.getNotes());
+        r.setPriceMad(t.getPriceMad());
+        r.setCityId(t.getCityId());
+        r.setCityName(t.getCityName());
+        r.setStopCount(t.getStopCount());
+        r.setGuideName(t.getGuideName());
+        r.setUpcomingSessionCount(t.getUpcomingSessionCount());
+        r.setNextSessionAt(t.getNextSessionAt());
         return r;
     }
 
-    private TourSessionResponse toTourSessionResponse(CircuitSession s, Long userId) {
-        long booked = bookingRepository.countByCircuitSessionIdAndStatus(s.getId(), "CONFIRMED");
+    private TourSessionResponse toTourSessionResponse(CircuitSession s, long booked, boolean userBooked) {
+        // Held (PENDING) seats are unavailable too; seats_taken already counts them
         int maxP = s.getMaxParticipants() != null ? s.getMaxParticipants() : Integer.MAX_VALUE;
-        int available = Math.max(0, maxP - (int) booked);
+        int available = Math.max(0, maxP - s.getSeatsTaken());
 
         TourSessionResponse r = new TourSessionResponse();
         r.setId(s.getId());
@@ -135,15 +202,15 @@ public class TourService {
         r.setBookedCount(booked);
         r.setAvailablePlaces(available);
         r.setStatus(s.getStatus());
-        r.setUserBooked(userId != null && bookingRepository.existsByCircuitSessionIdAndUserId(s.getId(), userId));
+        r.setUserBooked(userBooked);
         return r;
     }
 
-    private CircuitStopResponse toStopResponse(CircuitStop stop) {
+    private CircuitStopResponse toStopResponse(CircuitStop stop, int position) {
         Place p = stop.getPlace();
         CircuitStopResponse r = new CircuitStopResponse();
         r.setId(stop.getId());
-        r.setPosition(stop.getPosition());
+        r.setPosition(position);
         r.setDayNumber(stop.getDayNumber());
         r.setStopKind(stop.getStopKind());
         r.setMealType(stop.getMealType());
@@ -160,12 +227,4 @@ public class TourService {
         r.setPlaceLongitude(p.getLongitude());
         return r;
     }
-
-    private String getPrimaryCityName(Circuit c) {
-        return c.getCity().getNames().stream()
-                .filter(CityName::isPrimary)
-                .findFirst()
-                .map(CityName::getName)
-                .orElse(c.getCity().getNames().isEmpty() ? null : c.getCity().getNames().getFirst().getName());
-    }
 }
@@ -0,0 +1,370 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.entity.Place;
+import com.tarikma.app.entity.TransportOption;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * One city's places joined by transport option edges (both ways when bidirectional) and walking edges
+ * between places within walking distance, stored as adjacency arrays. Queries run a time-dependent
+ * label-setting search from a departure minute: an option can only be boarded within its service hours,
+ * waiting for its first departure when the traveller is early. Each place keeps every label that no
+ * other label there beats on both cost and arrival, since a cheaper but later arrival can miss a service
+ * that a dearer, earlier one still catches; for the fastest objective that is one label per place.
+ * Fastest queries use A* with a straight-line bound from the fastest edge in the city. Instances are
+ * immutable and safe to share.
+ */
+public final class TransitGraph {
+
+    static final String WALK_MODE = "WALK";
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final double KM_PER_DEGREE_LATITUDE = 111.0;
+
+    private final long[] placeIds;
+    private final String[] names;
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    // Edges of node i are edgeStart[i] until edgeStart[i + 1]
+    private final int[] edgeStart;
+    private final int[] source;
+    private final int[] target;
+    private final int[] minutes;
+    private final double[] km;
+    private final double[] price;
+    private final long[] optionId;
+    private final String[] mode;
+    private final int[] serviceStart;
+    private final int[] serviceEnd;
+
+    private final double maxKmPerMinute;
+
+    public enum Objective {
+        FASTEST, CHEAPEST, FEWEST_TRANSFERS
+    }
+
+    /**
+     * One ride or walk; transportOptionId is null for walking. Minutes count from midnight of the
+     * departure day and may pass 1440 on journeys that run past midnight.
+     */
+    public record Leg(long fromPlaceId, String fromPlaceName, long toPlaceId, String toPlaceName,
+                      Long transportOptionId, String mode, int departMinute, int arriveMinute,
+                      double distanceKm, double priceMad) {
+    }
+
+    public record Journey(List<Leg> legs, int departMinute, int arriveMinute, double priceMad, int transfers) {
+    }
+
+    private TransitGraph(long[] placeIds, String[] names, double[] latitudes, double[] longitudes, List<Edge> edges) {
+        int n = placeIds.length;
+        this.placeIds = placeIds;
+        this.names = names;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+
+        int m = edges.size();
+        this.edgeStart = new int[n + 1];
+        this.source = new int[m];
+        this.target = new int[m];
+        this.minutes = new int[m];
+        this.km = new double[m];
+        this.price = new double[m];
+        this.optionId = new long[m];
+        this.mode = new String[m];
+        this.serviceStart = new int[m];
+        this.serviceEnd = new int[m];
+
+        for (Edge e : edges) {
+            edgeStart[e.from + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            edgeStart[i + 1] += edgeStart[i];
+        }
+        int[] next = Arrays.copyOf(edgeStart, n);
+        double fastest = 0;
+        for (Edge e : edges) {
+            int k = next[e.from]++;
+            source[k] = e.from;
+            target[k] = e.to;
+            minutes[k] = e.minutes;
+            km[k] = e.km;
+            price[k] = e.price;
+            optionId[k] = e.optionId;
+            mode[k] = e.mode;
+            serviceStart[k] = e.serviceStart;
+            serviceEnd[k] = e.serviceEnd;
+
+            double straight = straightKm(e.from, e.to);
+            if (straight > 0) {
+                fastest = Math.max(fastest, e.minutes > 0 ? straight / e.minutes : Double.POSITIVE_INFINITY);
+            }
+        }
+        this.maxKmPerMinute = fastest;
+    }
+
+    private record Edge(int from, int to, int minutes, double km, double price, long optionId, String mode,
+                        int serviceStart, int serviceEnd) {
+    }
+
+    /**
+     * Builds the graph for a city's places and the options between them; options touching other
+     * places are ignored.
+     */
+    static TransitGraph build(List<Place> places, List<TransportOption> options) {
+        List<Place> sorted = places.stream().sorted(Comparator.comparing(Place::getId)).toList();
+        int n = sorted.size();
+        long[] ids = new long[n];
+        String[] names = new String[n];
+        double[] lat = new double[n];
+        double[] lng = new double[n];
+        for (int i = 0; i < n; i++) {
+            Place p = sorted.get(i);
+            ids[i] = p.getId();
+            names[i] = p.getName();
+            lat[i] = p.getLatitude() != null && p.getLongitude() != null ? p.getLatitude() : Double.NaN;
+            lng[i] = p.getLatitude() != null && p.getLongitude() != null ? p.getLongitude() : Double.NaN;
+        }
+
+        List<Edge> edges = new ArrayList<>();
+        for (TransportOption o : options) {
+            int from = Arrays.binarySearch(ids, o.getFromPlace().getId());
+            int to = Arrays.binarySearch(ids, o.getToPlace().getId());
+            if (from < 0 || to < 0) continue;
+
+            double straight = haversine(lat, lng, from, to);
+            double legKm = o.getDistanceKm() != null ? o.getDistanceKm()
+                    : Double.isNaN(straight) ? 0 : GeoDistance.roadKm(straight);
+            int legMinutes = o.getDurationMinutes() != null ? o.getDurationMinutes()
+                    : GeoDistance.modeTravelMinutes(o.getMode(), legKm);
+            double fare = fare(o, legKm);
+            int start = o.getServiceStartTime() != null ? toMinutes(o.getServiceStartTime()) : -1;
+            int end = o.getServiceEndTime() != null ? toMinutes(o.getServiceEndTime()) : -1;
+
+            edges.add(new Edge(from, to, legMinutes, legKm, fare, o.getId(), o.getMode(), start, end));
+            if (o.isBidirectional()) {
+                edges.add(new Edge(to, from, legMinutes, legKm, fare, o.getId(), o.getMode(), start, end));
+            }
+        }
+        addWalkingEdges(lat, lng, edges);
+
+        return new TransitGraph(ids, names, lat, lng, edges);
+    }
+
+    // Sweeps places by latitude, so only pairs within walking range in latitude are measured
+    private static void addWalkingEdges(double[] lat, double[] lng, List<Edge> edges) {
+        Integer[] byLat = new Integer[lat.length];
+        int located = 0;
+        for (int i = 0; i < lat.length; i++) {
+            if (!Double.isNaN(lat[i])) byLat[located++] = i;
+        }
+        Integer[] order = Arrays.copyOf(byLat, located);
+        Arrays.sort(order, Comparator.comparingDouble(i -> lat[i]));
+
+        // No straight line longer than this can be walkable once stretched to streets
+        double maxStraightKm = GeoDistance.WALK_MAX_KM / GeoDistance.ROAD_FACTOR;
+        double maxDegrees = maxStraightKm / KM_PER_DEGREE_LATITUDE;
+        for (int a = 0; a < order.length; a++) {
+            int i = order[a];
+            for (int b = a + 1; b < order.length && lat[order[b]] - lat[i] <= maxDegrees; b++) {
+                int j = order[b];
+                double roadKm = GeoDistance.roadKm(haversine(lat, lng, i, j));
+                if (!GeoDistance.walkable(roadKm)) continue;
+
+                int walk = GeoDistance.modeTravelMinutes(WALK_MODE, roadKm);
+                edges.add(new Edge(i, j, walk, roadKm, 0, 0, WALK_MODE, -1, -1));
+                edges.add(new Edge(j, i, walk, roadKm, 0, 0, WALK_MODE, -1, -1));
+            }
+        }
+    }
+
+    private static double fare(TransportOption o, double legKm) {
+        String type = o.getPricingType() != null ? o.getPricingType() : "UNKNOWN";
+        return switch (type) {
+            case "FREE" -> 0;
+            case "PER_KM" -> o.getPricePerKmMad() != null ? o.getPricePerKmMad() * legKm : 0;
+            // UNKNOWN counts as free unless a price was still given
+            default -> o.getPriceMad() != null ? o.getPriceMad() : 0;
+        };
+    }
+
+    public int size() {
+        return placeIds.length;
+    }
+
+    public boolean contains(long placeId) {
+        return Arrays.binarySearch(placeIds, placeId) >= 0;
+    }
+
+    /**
+     * The best journey leaving at departAt, or null when no sequence of rides and walks connects
+     * the places. Cheapest and fewest-transfers ties go to the earlier arrival.
+     */
+    public Journey route(long fromPlaceId, long toPlaceId, LocalTime departAt, Objective objective) {
+        int start = Arrays.binarySearch(placeIds, fromPlaceId);
+        int goal = Arrays.binarySearch(placeIds, toPlaceId);
+        if (start < 0 || goal < 0) {
+            return null;
+        }
+        int depart = toMinutes(departAt);
+        if (start == goal) {
+            return new Journey(List.of(), depart, depart, 0, 0);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Label>[] kept = new List[placeIds.length];
+        Label first = new Label(start, 0, depart, 0, 0, -1, depart, null, bound(start, goal, objective));
+        kept[start] = new ArrayList<>(List.of(first));
+        PriorityQueue<Label> queue = new PriorityQueue<>();
+        queue.add(first);
+
+        while (!queue.isEmpty()) {
+            Label label = queue.poll();
+            if (label.dominated) continue;
+            int u = label.node;
+            if (u == goal) {
+                return journey(label);
+            }
+
+            for (int k = edgeStart[u]; k < edgeStart[u + 1]; k++) {
+                int v = target[k];
+                int leave = nextDeparture(k, label.arrival);
+                if (leave < 0) continue;
+                int arrive = leave + minutes[k];
+                double newFare = label.fare + price[k];
+                int newRides = label.rides + (optionId[k] != 0 ? 1 : 0);
+                double newCost = switch (objective) {
+                    case FASTEST -> arrive;
+                    case CHEAPEST -> newFare;
+                    case FEWEST_TRANSFERS -> newRides;
+                };
+
+                if (admit(kept, v, newCost, arrive)) {
+                    Label next = new Label(v, newCost, arrive, newFare, newRides, k, leave, label,
+                            newCost + bound(v, goal, objective));
+                    kept[v].add(next);
+                    queue.add(next);
+                }
+            }
+        }
+        return null;
+    }
+
+    // True when no label kept at the node is as cheap and as early; the kept labels it beats are dropped
+    private static boolean admit(List<Label>[] kept, int node, double cost, int arrival) {
+        List<Label> labels = kept[node];
+        if (labels == null) {
+            kept[node] = new ArrayList<>();
+            return true;
+        }
+        for (Label l : labels) {
+            if (l.cost <= cost && l.arrival <= arrival) return false;
+        }
+        labels.removeIf(l -> {
+            l.dominated = cost <= l.cost && arrival <= l.arrival;
+            return l.dominated;
+        });
+        return true;
+    }
+
+    private Journey journey(Label end) {
+        List<Leg> legs = new ArrayList<>();
+        Label l = end;
+        for (; l.parent != null; l = l.parent) {
+            int k = l.edge;
+            int u = source[k];
+            int v = l.node;
+            legs.add(new Leg(placeIds[u], names[u], placeIds[v], names[v],
+                    optionId[k] != 0 ? optionId[k] : null, mode[k],
+                    l.boarded, l.arrival, km[k], price[k]));
+        }
+        Collections.reverse(legs);
+        return new Journey(legs, l.arrival, end.arrival, end.fare, Math.max(0, end.rides - 1));
+    }
+
+    // Earliest minute the edge can be boarded at or after t, or -1 when its service is over for the day
+    private int nextDeparture(int edge, int t) {
+        int start = serviceStart[edge];
+        int end = serviceEnd[edge];
+        if (start < 0 && end < 0) {
+            return t;
+        }
+        int day = Math.floorDiv(t, MINUTES_PER_DAY) * MINUTES_PER_DAY;
+        int clock = t - day;
+        int from = start < 0 ? 0 : start;
+        int to = end < 0 ? MINUTES_PER_DAY - 1 : end;
+
+        if (from <= to) {
+            if (clock < from) return day + from;
+            return clock <= to ? t : -1;
+        }
+        // Runs past midnight, e.g. 22:00 to 02:00
+        if (clock >= from || clock <= to) return t;
+        return day + from;
+    }
+
+    // Lower bound on the remaining minutes for A*; 0 turns the search into plain Dijkstra
+    private double bound(int node, int goal, Objective objective) {
+        if (objective != Objective.FASTEST || maxKmPerMinute == 0 || Double.isInfinite(maxKmPerMinute)) {
+            return 0;
+        }
+        double straight = straightKm(node, goal);
+        return straight > 0 ? straight / maxKmPerMinute : 0;
+    }
+
+    private double straightKm(int i, int j) {
+        double d = haversine(latitudes, longitudes, i, j);
+        return Double.isNaN(d) ? 0 : d;
+    }
+
+    private static double haversine(double[] lat, double[] lng, int i, int j) {
+        if (Double.isNaN(lat[i]) || Double.isNaN(lat[j])) {
+            return Double.NaN;
+        }
+        return GeoDistance.haversineKm(lat[i], lng[i], lat[j], lng[j]);
+    }
+
+    private static int toMinutes(LocalTime t) {
+        return t.getHour() * 60 + t.getMinute();
+    }
+
+    // A partial journey ending at node, reached over edge from parent (null at the departure place)
+    private static final class Label implements Comparable<Label> {
+        final int node;
+        final double cost;
+        final int arrival;
+        final double fare;
+        final int rides;
+        final int edge;
+        final int boarded;
+        final Label parent;
+        final double key;
+        boolean dominated;
+
+        Label(int node, double cost, int arrival, double fare, int rides, int edge, int boarded, Label parent,
+              double key) {
+            this.node = node;
+            this.cost = cost;
+            this.arrival = arrival;
+            this.fare = fare;
+            this.rides = rides;
+            this.edge = edge;
+            this.boarded = boarded;
+            this.parent = parent;
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(Label o) {
+            int c = Double.compare(key, o.key);
+            return c != 0 ? c : Integer.compare(arrival, o.arrival);
+        }
+    }
+}
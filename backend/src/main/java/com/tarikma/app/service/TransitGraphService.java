@@ -0,0 +1,82 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.repository.PlaceRepository;
+import com.tarikma.app.repository.TransportOptionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps one {@link TransitGraph} per city in memory. Building one is a single pass over the city's
+ * places and transport options, so edits simply drop the city's graph after commit and the next
+ * query rebuilds it.
+ */
+@Service
+public class TransitGraphService {
+
+    private static final Logger log = LoggerFactory.getLogger(TransitGraphService.class);
+
+    private final PlaceRepository placeRepository;
+    private final TransportOptionRepository transportOptionRepository;
+
+    private final Map<Long, TransitGraph> graphs = new ConcurrentHashMap<>();
+
+    // Bumped on every eviction so a graph built from rows read before an edit is not kept
+    private final AtomicLong changes = new AtomicLong();
+
+    public TransitGraphService(PlaceRepository placeRepository, TransportOptionRepository transportOptionRepository) {
+        this.placeRepository = placeRepository;
+        this.transportOptionRepository = transportOptionRepository;
+    }
+
+    public TransitGraph forCity(Long cityId) {
+        TransitGraph cached = graphs.get(cityId);
+        if (cached != null) return cached;
+        // Built outside the map: its queries must not hold a lock other cities may share
+        long seen = changes.get();
+        TransitGraph built = build(cityId);
+        TransitGraph raced = graphs.putIfAbsent(cityId, built);
+        if (raced != null) return raced;
+        if (changes.get() != seen) {
+            // An edit may have been evicted before this graph was cached; the next query rebuilds
+            graphs.remove(cityId, built);
+        }
+        return built;
+    }
+
+    /**
+     * Drops the city's graph once the current transaction commits.
+     */
+    public void cityChanged(Long cityId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(cityId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(cityId);
+            }
+        });
+    }
+
+    private void evict(Long cityId) {
+        changes.incrementAndGet();
+        graphs.remove(cityId);
+    }
+
+    private TransitGraph build(Long cityId) {
+        long start = System.nanoTime();
+        TransitGraph graph = TransitGraph.build(
+                placeRepository.findByCityId(cityId),
+                transportOptionRepository.findByFromPlaceCityId(cityId));
+        log.info("Built transit graph for city {} ({} places) in {} ms", cityId, graph.size(), (System.nanoTime() - start) / 1_000_000);
+        return graph;
+    }
+}
@@ -1,6 +1,8 @@
 package com.tarikma.app.service;
 
 import com.tarikma.app.dto.transport.CreateTransportOptionRequest;
+import com.tarikma.app.dto.transport.TransportConnectionLegResponse;
+import com.tarikma.app.dto.transport.TransportConnectionResponse;
 import com.tarikma.app.dto.transport.TransportOptionResponse;
 import com.tarikma.app.dto.transport.UpdateTransportOptionRequest;
 import com.tarikma.app.entity.Place;
@@ -14,25 +16,34 @@ import com.tarikma.app.repository.UserRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
+import java.time.LocalTime;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 
 @Service
 public class TransportOptionService {
 
+    private static final LocalTime DEFAULT_DEPARTURE = LocalTime.of(9, 0);
+
     private final TransportOptionRepository transportOptionRepository;
     private final PlaceRepository placeRepository;
     private final UserRepository userRepository;
+    private final TravelMatrixService travelMatrixService;
+    private final TransitGraphService transitGraphService;
 
     public TransportOptionService(
             TransportOptionRepository transportOptionRepository,
             PlaceRepository placeRepository,
-            UserRepository userRepository
+            UserRepository userRepository,
+            TravelMatrixService travelMatrixService,
+            TransitGraphService transitGraphService
     ) {
         this.transportOptionRepository = transportOptionRepository;
         this.placeRepository = placeRepository;
         this.userRepository = userRepository;
+        this.travelMatrixService = travelMatrixService;
+        this.transitGraphService = transitGraphService;
     }
 
     @Transactional(readOnly = true)
@@ -40,7 +51,7 @@ public class TransportOptionService {
         List<TransportOption> options;
 
         if (fromPlaceId != null && toPlaceId != null) {
-            options = listForPlaces(fromPlaceId, toPlaceId);
+            options = transportOptionRepository.findConnecting(fromPlaceId, toPlaceId);
         } else if (cityId != null) {
             options = transportOptionRepository.findByFromPlaceCityId(cityId);
         } else {
@@ -53,6 +64,27 @@ public class TransportOptionService {
                 .toList();
     }
 
+    /**
+     * Best sequence of rides and walks between two places of a city, leaving at departAt (09:00 when
+     * not given). Objective is FASTEST (default), CHEAPEST or FEWEST_TRANSFERS.
+     */
+    @Transactional(readOnly = true)
+    public TransportConnectionResponse findConnection(Long fromPlaceId, Long toPlaceId, LocalTime departAt, String objective) {
+        Place from = findPlaceOrThrow(fromPlaceId);
+        Place to = findPlaceOrThrow(toPlaceId);
+        if (!from.getCity().getId().equals(to.getCity().getId())) {
+            throw new BadRequestException("Places must belong to the same city");
+        }
+
+        TransitGraph.Objective goal = parseObjective(objective);
+        TransitGraph.Journey journey = transitGraphService.forCity(from.getCity().getId())
+                .route(fromPlaceId, toPlaceId, departAt != null ? departAt : DEFAULT_DEPARTURE, goal);
+        if (journey == null) {
+            throw new NotFoundException("No connection found between these places");
+        }
+        return toConnectionResponse(journey, goal);
+    }
+
     @Transactional(readOnly = true)
     public TransportOptionResponse get(Long id) {
         return toResponse(findOrThrow(id));
@@ -88,7 +120,10 @@ public class TransportOptionService {
 
         validatePricing(opt);
 
-        return toResponse(transportOptionRepository.save(opt));
+        opt = transportOptionRepository.save(opt);
+        travelMatrixService.transportOptionsChanged(from, to);
+        transitGraphService.cityChanged(from.getCity().getId());
+        return toResponse(opt);
     }
 
     @Transactional
@@ -110,28 +145,18 @@ public class TransportOptionService {
 
         validatePricing(opt);
 
-        return toResponse(transportOptionRepository.save(opt));
+        opt = transportOptionRepository.save(opt);
+        travelMatrixService.transportOptionsChanged(opt.getFromPlace(), opt.getToPlace());
+        transitGraphService.cityChanged(opt.getFromPlace().getCity().getId());
+        return toResponse(opt);
     }
 
     @Transactional
     public void delete(Long id) {
-        if (!transportOptionRepository.existsById(id)) {
-            throw new NotFoundException("Transport option not found");
-        }
+        TransportOption opt = findOrThrow(id);
         transportOptionRepository.deleteById(id);
-    }
-
-    private List<TransportOption> listForPlaces(Long fromPlaceId, Long toPlaceId) {
-        List<TransportOption> direct = transportOptionRepository.findByFromPlaceIdAndToPlaceId(fromPlaceId, toPlaceId);
-        List<TransportOption> reverse = transportOptionRepository.findByFromPlaceIdAndToPlaceId(toPlaceId, fromPlaceId);
-
-        List<TransportOption> res = new ArrayList<>(direct);
-        for (TransportOption opt : reverse) {
-            if (opt.isBidirectional()) {
-                res.add(opt);
-            }
-        }
-        return res;
+        travelMatrixService.transportOptionsChanged(opt.getFromPlace(), opt.getToPlace());
+        transitGraphService.cityChanged(opt.getFromPlace().getCity().getId());
     }
 
     private void validatePricing(TransportOption opt) {
@@ -155,6 +180,46 @@ public class TransportOptionService {
         return pricingType.trim().toUpperCase();
     }
 
+    private TransitGraph.Objective parseObjective(String objective) {
+        if (objective == null || objective.isBlank()) return TransitGraph.Objective.FASTEST;
+        try {
+            return TransitGraph.Objective.valueOf(objective.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid objective. Allowed: FASTEST, CHEAPEST, FEWEST_TRANSFERS");
+        }
+    }
+
+    private TransportConnectionResponse toConnectionResponse(TransitGraph.Journey journey, TransitGraph.Objective objective) {
+        TransportConnectionResponse r = new TransportConnectionResponse();
+        r.setObjective(objective.name());
+        r.setDepartAt(clockTime(journey.departMinute()));
+        r.setArriveAt(clockTime(journey.arriveMinute()));
+        r.setDurationMinutes(journey.arriveMinute() - journey.departMinute());
+        r.setPriceMad(journey.priceMad());
+        r.setTransfers(journey.transfers());
+        r.setLegs(journey.legs().stream().map(leg -> {
+            TransportConnectionLegResponse l = new TransportConnectionLegResponse();
+            l.setFromPlaceId(leg.fromPlaceId());
+            l.setFromPlaceName(leg.fromPlaceName());
+            l.setToPlaceId(leg.toPlaceId());
+            l.setToPlaceName(leg.toPlaceName());
+            l.setTransportOptionId(leg.transportOptionId());
+            l.setMode(leg.mode());
+            l.setDepartAt(clockTime(leg.departMinute()));
+            l.setArriveAt(clockTime(leg.arriveMinute()));
+            l.setDistanceKm(Math.round(leg.distanceKm() * 100) / 100.0);
+            l.setPriceMad(leg.priceMad());
+            return l;
+        }).toList());
+        return r;
+    }
+
+    // Journeys may run past midnight; the clock time wraps
+    private static LocalTime clockTime(int minuteOfJourneyDay) {
+        int m = Math.floorMod(minuteOfJourneyDay, 24 * 60);
+        return LocalTime.of(m / 60, m % 60);
+    }
+
     private TransportOptionResponse toResponse(TransportOption opt) {
         TransportOptionResponse r = new TransportOptionResponse();
         r.setId(opt.getId());
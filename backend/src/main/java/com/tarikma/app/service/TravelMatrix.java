@@ -0,0 +1,213 @@
+package com.tarikma.app.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Pairwise travel estimates between one city's places, stored as row-major float arrays indexed by
+ * a place's position in a sorted id array. Cells come from coordinates unless a transport option
+ * gives the leg's distance or duration. Instances are immutable: updates return a copy that
+ * recomputes only the affected rows and columns, so readers never lock, and lookups allocate nothing.
+ */
+public final class TravelMatrix {
+
+    private final long[] placeIds;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final Map<PlacePair, Leg> legs;
+    private final float[] km;
+    private final float[] minutes;
+
+    /**
+     * Ordered pair of place ids.
+     */
+    public record PlacePair(long fromId, long toId) {
+    }
+
+    /**
+     * Travel given by transport options for one direction; km is NaN when no option states it.
+     */
+    public record Leg(float km, float minutes) {
+    }
+
+    private TravelMatrix(long[] placeIds, double[] latitudes, double[] longitudes, Map<PlacePair, Leg> legs,
+                         float[] km, float[] minutes) {
+        this.placeIds = placeIds;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.legs = legs;
+        this.km = km;
+        this.minutes = minutes;
+    }
+
+    /**
+     * Computes every cell. Place ids must be sorted ascending.
+     */
+    static TravelMatrix build(long[] placeIds, double[] latitudes, double[] longitudes, Map<PlacePair, Leg> legs) {
+        int n = placeIds.length;
+        TravelMatrix m = new TravelMatrix(placeIds, latitudes, longitudes, Map.copyOf(legs),
+                new float[n * n], new float[n * n]);
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                m.fillPair(i, j);
+            }
+        }
+        return m;
+    }
+
+    public int size() {
+        return placeIds.length;
+    }
+
+    /**
+     * Position of a place in this matrix, or -1 when the place is not part of it.
+     */
+    public int indexOf(long placeId) {
+        int i = Arrays.binarySearch(placeIds, placeId);
+        return i >= 0 ? i : -1;
+    }
+
+    public float km(int from, int to) {
+        return km[from * placeIds.length + to];
+    }
+
+    public float minutes(int from, int to) {
+        return minutes[from * placeIds.length + to];
+    }
+
+    /**
+     * Travel minutes between two places, or NaN when either is not part of this matrix.
+     */
+    public float minutesBetween(long fromPlaceId, long toPlaceId) {
+        int i = indexOf(fromPlaceId);
+        int j = indexOf(toPlaceId);
+        return i < 0 || j < 0 ? Float.NaN : minutes(i, j);
+    }
+
+    /**
+     * Adds a place or moves an existing one; only its row and column are recomputed.
+     */
+    TravelMatrix withPlace(long placeId, double latitude, double longitude) {
+        int at = Arrays.binarySearch(placeIds, placeId);
+        if (at >= 0 && latitudes[at] == latitude && longitudes[at] == longitude) {
+            return this;
+        }
+
+        int n = placeIds.length;
+        boolean added = at < 0;
+        int index = added ? -at - 1 : at;
+        int size = added ? n + 1 : n;
+
+        long[] ids = new long[size];
+        double[] lat = new double[size];
+        double[] lng = new double[size];
+        float[] kmCells = new float[size * size];
+        float[] minuteCells = new float[size * size];
+
+        for (int i = 0; i < n; i++) {
+            int ni = added && i >= index ? i + 1 : i;
+            ids[ni] = placeIds[i];
+            lat[ni] = latitudes[i];
+            lng[ni] = longitudes[i];
+            for (int j = 0; j < n; j++) {
+                int nj = added && j >= index ? j + 1 : j;
+                kmCells[ni * size + nj] = km[i * n + j];
+                minuteCells[ni * size + nj] = minutes[i * n + j];
+            }
+        }
+        ids[index] = placeId;
+        lat[index] = latitude;
+        lng[index] = longitude;
+
+        TravelMatrix m = new TravelMatrix(ids, lat, lng, legs, kmCells, minuteCells);
+        m.fillRowAndColumn(index);
+        return m;
+    }
+
+    /**
+     * Drops a place and every transport leg that touches it.
+     */
+    TravelMatrix withoutPlace(long placeId) {
+        int index = Arrays.binarySearch(placeIds, placeId);
+        if (index < 0) {
+            return this;
+        }
+
+        int n = placeIds.length;
+        int size = n - 1;
+        long[] ids = new long[size];
+        double[] lat = new double[size];
+        double[] lng = new double[size];
+        float[] kmCells = new float[size * size];
+        float[] minuteCells = new float[size * size];
+
+        for (int i = 0, ni = 0; i < n; i++) {
+            if (i == index) continue;
+            ids[ni] = placeIds[i];
+            lat[ni] = latitudes[i];
+            lng[ni] = longitudes[i];
+            for (int j = 0, nj = 0; j < n; j++) {
+                if (j == index) continue;
+                kmCells[ni * size + nj] = km[i * n + j];
+                minuteCells[ni * size + nj] = minutes[i * n + j];
+                nj++;
+            }
+            ni++;
+        }
+
+        Map<PlacePair, Leg> kept = new HashMap<>(legs);
+        kept.keySet().removeIf(p -> p.fromId() == placeId || p.toId() == placeId);
+        return new TravelMatrix(ids, lat, lng, Map.copyOf(kept), kmCells, minuteCells);
+    }
+
+    /**
+     * Replaces the transport legs between two places in both directions; null means no option.
+     */
+    TravelMatrix withLegs(long aId, long bId, Leg aToB, Leg bToA) {
+        PlacePair forward = new PlacePair(aId, bId);
+        PlacePair backward = new PlacePair(bId, aId);
+        if (Objects.equals(legs.get(forward), aToB) && Objects.equals(legs.get(backward), bToA)) {
+            return this;
+        }
+
+        Map<PlacePair, Leg> changed = new HashMap<>(legs);
+        if (aToB != null) changed.put(forward, aToB); else changed.remove(forward);
+        if (bToA != null) changed.put(backward, bToA); else changed.remove(backward);
+
+        TravelMatrix m = new TravelMatrix(placeIds, latitudes, longitudes, Map.copyOf(changed),
+                km.clone(), minutes.clone());
+        int i = indexOf(aId);
+        int j = indexOf(bId);
+        if (i >= 0 && j >= 0) {
+            m.fillPair(i, j);
+        }
+        return m;
+    }
+
+    private void fillRowAndColumn(int index) {
+        int n = placeIds.length;
+        km[index * n + index] = 0;
+        minutes[index * n + index] = 0;
+        for (int j = 0; j < n; j++) {
+            if (j != index) {
+                fillPair(index, j);
+            }
+        }
+    }
+
+    // Fills both directions of a pair; mutates, so only called on a copy not yet shared
+    private void fillPair(int i, int j) {
+        int n = placeIds.length;
+        double straight = GeoDistance.haversineKm(latitudes[i], longitudes[i], latitudes[j], longitudes[j]);
+        boolean anyLegs = !legs.isEmpty();
+        fillCell(i * n + j, straight, anyLegs ? legs.get(new PlacePair(placeIds[i], placeIds[j])) : null);
+        fillCell(j * n + i, straight, anyLegs ? legs.get(new PlacePair(placeIds[j], placeIds[i])) : null);
+    }
+
+    private void fillCell(int cell, double straightKm, Leg leg) {
+        km[cell] = leg != null && !Float.isNaN(leg.km()) ? leg.km() : (float) straightKm;
+        minutes[cell] = leg != null ? leg.minutes() : GeoDistance.estimatedTravelMinutes(straightKm);
+    }
+}
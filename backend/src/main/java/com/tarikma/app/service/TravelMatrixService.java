@@ -0,0 +1,168 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.entity.Place;
+import com.tarikma.app.entity.TransportOption;
+import com.tarikma.app.repository.PlaceRepository;
+import com.tarikma.app.repository.TransportOptionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps one {@link TravelMatrix} per city in memory, built on first use from the city's places and
+ * transport options. Place and transport option edits patch loaded matrices after commit; cities not
+ * loaded are simply built on next use.
+ */
+@Service
+public class TravelMatrixService {
+
+    private static final Logger log = LoggerFactory.getLogger(TravelMatrixService.class);
+
+    private final PlaceRepository placeRepository;
+    private final TransportOptionRepository transportOptionRepository;
+
+    private final Map<Long, TravelMatrix> matrices = new ConcurrentHashMap<>();
+
+    // Bumped before every committed change is applied, so a load that raced with one is not kept
+    private final AtomicLong changes = new AtomicLong();
+
+    public TravelMatrixService(PlaceRepository placeRepository, TransportOptionRepository transportOptionRepository) {
+        this.placeRepository = placeRepository;
+        this.transportOptionRepository = transportOptionRepository;
+    }
+
+    public TravelMatrix forCity(Long cityId) {
+        TravelMatrix loaded = matrices.get(cityId);
+        if (loaded != null) {
+            return loaded;
+        }
+
+        // Loaded outside the map: its queries must not hold a lock other cities may share
+        long seen = changes.get();
+        TravelMatrix built = load(cityId);
+        TravelMatrix raced = matrices.putIfAbsent(cityId, built);
+        if (raced != null) {
+            return raced;
+        }
+        if (changes.get() != seen) {
+            // A change may have been applied before this matrix was cached; the next use rebuilds
+            matrices.remove(cityId, built);
+        }
+        return built;
+    }
+
+    public void placeSaved(Place place) {
+        Long cityId = place.getCity().getId();
+        long placeId = place.getId();
+        double latitude = place.getLatitude();
+        double longitude = place.getLongitude();
+        afterCommit(() -> update(cityId, m -> m.withPlace(placeId, latitude, longitude)));
+    }
+
+    public void placeDeleted(Long cityId, Long placeId) {
+        afterCommit(() -> update(cityId, m -> m.withoutPlace(placeId)));
+    }
+
+    /**
+     * Re-reads the options between two places once the edit is committed.
+     */
+    public void transportOptionsChanged(Place from, Place to) {
+        Long cityId = from.getCity().getId();
+        Long fromId = from.getId();
+        Long toId = to.getId();
+        afterCommit(() -> {
+            if (!matrices.containsKey(cityId)) return;
+            Map<TravelMatrix.PlacePair, TravelMatrix.Leg> legs = legsOf(
+                    transportOptionRepository.findByFromPlaceIdAndToPlaceId(fromId, toId),
+                    transportOptionRepository.findByFromPlaceIdAndToPlaceId(toId, fromId));
+            update(cityId, m -> m.withLegs(fromId, toId,
+                    legs.get(new TravelMatrix.PlacePair(fromId, toId)),
+                    legs.get(new TravelMatrix.PlacePair(toId, fromId))));
+        });
+    }
+
+    public void cityDeleted(Long cityId) {
+        afterCommit(() -> matrices.remove(cityId));
+    }
+
+    private TravelMatrix load(Long cityId) {
+        List<Place> places = placeRepository.findByCityId(cityId).stream()
+                .sorted(Comparator.comparing(Place::getId))
+                .toList();
+        int n = places.size();
+        long[] ids = new long[n];
+        double[] lat = new double[n];
+        double[] lng = new double[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = places.get(i).getId();
+            lat[i] = places.get(i).getLatitude();
+            lng[i] = places.get(i).getLongitude();
+        }
+        Map<TravelMatrix.PlacePair, TravelMatrix.Leg> legs = legsOf(transportOptionRepository.findByFromPlaceCityId(cityId));
+
+        long start = System.nanoTime();
+        TravelMatrix built = TravelMatrix.build(ids, lat, lng, legs);
+        log.info("Built travel matrix for city {} ({} places) in {} ms", cityId, n, (System.nanoTime() - start) / 1_000_000);
+        return built;
+    }
+
+    private void update(Long cityId, UnaryOperator<TravelMatrix> change) {
+        matrices.computeIfPresent(cityId, (id, m) -> change.apply(m));
+    }
+
+    // Fastest option per direction; an option without a duration is timed from its distance
+    @SafeVarargs
+    private static Map<TravelMatrix.PlacePair, TravelMatrix.Leg> legsOf(List<TransportOption>... optionLists) {
+        Map<TravelMatrix.PlacePair, TravelMatrix.Leg> legs = new HashMap<>();
+        for (List<TransportOption> options : optionLists) {
+            for (TransportOption o : options) {
+                if (o.getDurationMinutes() == null && o.getDistanceKm() == null) continue;
+
+                float km = o.getDistanceKm() != null ? o.getDistanceKm().floatValue() : Float.NaN;
+                float minutes = o.getDurationMinutes() != null
+                        ? o.getDurationMinutes()
+                        : GeoDistance.roadTravelMinutes(o.getDistanceKm());
+                TravelMatrix.Leg leg = new TravelMatrix.Leg(km, minutes);
+
+                long from = o.getFromPlace().getId();
+                long to = o.getToPlace().getId();
+                legs.merge(new TravelMatrix.PlacePair(from, to), leg, TravelMatrixService::faster);
+                if (o.isBidirectional()) {
+                    legs.merge(new TravelMatrix.PlacePair(to, from), leg, TravelMatrixService::faster);
+                }
+            }
+        }
+        return legs;
+    }
+
+    private static TravelMatrix.Leg faster(TravelMatrix.Leg a, TravelMatrix.Leg b) {
+        return b.minutes() < a.minutes() ? b : a;
+    }
+
+    private void afterCommit(Runnable action) {
+        Runnable change = () -> {
+            changes.incrementAndGet();
+            action.run();
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,45 @@
+-- Denormalized read model for the public tour catalog.
+-- One row per priced circuit, maintained by TourCatalogService.
+CREATE TABLE tour_catalog (
+    circuit_id             BIGINT PRIMARY KEY REFERENCES circuits(id) ON DELETE CASCADE,
+    city_id                BIGINT NOT NULL,
+    name                   VARCHAR(200) NOT NULL,
+    notes                  TEXT,
+    price_mad              NUMERIC(10,2) NOT NULL,
+    city_name              VARCHAR(200),
+    guide_name             VARCHAR(150),
+    stop_count             INTEGER NOT NULL DEFAULT 0,
+    upcoming_session_count INTEGER NOT NULL DEFAULT 0,
+    next_session_at        TIMESTAMP WITH TIME ZONE,
+    updated_at             TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX idx_tour_catalog_next_session ON tour_catalog(next_session_at, circuit_id);
+CREATE INDEX idx_tour_catalog_city_next_session ON tour_catalog(city_id, next_session_at, circuit_id);
+
+INSERT INTO tour_catalog (
+    circuit_id, city_id, name, notes, price_mad, city_name, guide_name,
+    stop_count, upcoming_session_count, next_session_at, updated_at
+)
+SELECT c.id,
+       c.city_id,
+       c.name,
+       c.notes,
+       c.price_mad,
+       (SELECT n.name FROM city_names n
+         WHERE n.city_id = c.city_id
+         ORDER BY n.is_primary DESC, n.id ASC
+         LIMIT 1),
+       u.full_name,
+       (SELECT COUNT(*) FROM circuit_stops st WHERE st.circuit_id = c.id),
+       COUNT(s.id),
+       MIN(s.start_date_time),
+       NOW()
+FROM circuits c
+JOIN users u ON u.id = c.created_by
+LEFT JOIN circuit_sessions s
+       ON s.circuit_id = c.id
+      AND s.status = 'SCHEDULED'
+      AND s.start_date_time > NOW()
+WHERE c.price_mad IS NOT NULL
+GROUP BY c.id, u.full_name;
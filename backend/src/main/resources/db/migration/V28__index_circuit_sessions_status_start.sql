@@ -0,0 +1,6 @@
+-- Scheduled-session lookups by start time (catalog date-window filter, upcoming counts)
+CREATE INDEX idx_circuit_sessions_status_start ON circuit_sessions(status, start_date_time);
+
+-- Correlated EXISTS from tour_catalog probes one circuit at a time
+CREATE INDEX idx_circuit_sessions_circuit_status_start
+    ON circuit_sessions(circuit_id, status, start_date_time);
@@ -0,0 +1,18 @@
+-- Seats held by PENDING or CONFIRMED bookings; maintained only through conditional UPDATEs
+ALTER TABLE circuit_sessions ADD COLUMN seats_taken INTEGER NOT NULL DEFAULT 0;
+
+UPDATE circuit_sessions s
+SET seats_taken = (
+    SELECT COUNT(*) FROM bookings b
+    WHERE b.circuit_session_id = s.id
+      AND b.status IN ('PENDING', 'CONFIRMED')
+);
+
+ALTER TABLE circuit_sessions
+    ADD CONSTRAINT chk_circuit_sessions_seats_taken CHECK (seats_taken >= 0);
+
+-- Expired checkouts keep their row for history but must not block a retry
+ALTER TABLE bookings DROP CONSTRAINT bookings_circuit_session_id_user_id_key;
+CREATE UNIQUE INDEX uq_bookings_session_user_active
+    ON bookings(circuit_session_id, user_id)
+    WHERE status <> 'EXPIRED';
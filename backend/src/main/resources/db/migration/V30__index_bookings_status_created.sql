@@ -0,0 +1,2 @@
+-- Hold sweeper scans the oldest PENDING bookings first
+CREATE INDEX idx_bookings_status_created ON bookings(status, created_at);
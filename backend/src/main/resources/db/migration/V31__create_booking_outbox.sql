@@ -0,0 +1,14 @@
+-- Side effects of a booking that run after its transaction commits (Stripe checkout creation)
+CREATE TABLE booking_outbox (
+    id               BIGSERIAL PRIMARY KEY,
+    booking_id       BIGINT NOT NULL REFERENCES bookings(id) ON DELETE CASCADE,
+    event_type       VARCHAR(40) NOT NULL,
+    attempts         INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at  TIMESTAMP WITH TIME ZONE NOT NULL,
+    last_error       TEXT,
+    created_at       TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    processed_at     TIMESTAMP WITH TIME ZONE
+);
+
+CREATE INDEX idx_booking_outbox_due ON booking_outbox(next_attempt_at) WHERE processed_at IS NULL;
+CREATE INDEX idx_booking_outbox_booking ON booking_outbox(booking_id);
@@ -0,0 +1,18 @@
+-- Inbox of verified Stripe webhooks; the event id makes redeliveries a no-op
+CREATE TABLE stripe_webhook_events (
+    event_id             VARCHAR(255) PRIMARY KEY,
+    event_type           VARCHAR(100) NOT NULL,
+    checkout_session_id  VARCHAR(255) NOT NULL,
+    payment_intent_id    VARCHAR(255),
+    booking_id           BIGINT,
+    payload              TEXT NOT NULL,
+    attempts             INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at      TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    last_error           TEXT,
+    received_at          TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    processed_at         TIMESTAMP WITH TIME ZONE
+);
+
+CREATE INDEX idx_stripe_webhook_events_due
+    ON stripe_webhook_events(next_attempt_at)
+    WHERE processed_at IS NULL;
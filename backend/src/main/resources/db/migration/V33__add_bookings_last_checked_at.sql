@@ -0,0 +1,2 @@
+-- When the reconciler (or the success page) last asked Stripe about a PENDING booking
+ALTER TABLE bookings ADD COLUMN last_checked_at TIMESTAMP WITH TIME ZONE;
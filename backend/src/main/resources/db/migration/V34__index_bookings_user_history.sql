@@ -0,0 +1,3 @@
+-- Booking history is read newest first per user with an (created_at, id) keyset
+DROP INDEX IF EXISTS idx_bookings_user;
+CREATE INDEX idx_bookings_user_created ON bookings(user_id, created_at DESC, id DESC);
@@ -0,0 +1,40 @@
+-- Confirmed-booking rollups per UTC day, maintained when a booking confirms
+CREATE TABLE circuit_daily_stats (
+    circuit_id          BIGINT NOT NULL REFERENCES circuits(id) ON DELETE CASCADE,
+    stat_date           DATE NOT NULL,
+    guide_id            BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    confirmed_bookings  INTEGER NOT NULL DEFAULT 0,
+    revenue_mad         NUMERIC(14,2) NOT NULL DEFAULT 0,
+    seats               INTEGER NOT NULL DEFAULT 0,
+    PRIMARY KEY (circuit_id, stat_date)
+);
+
+CREATE INDEX idx_circuit_daily_stats_guide ON circuit_daily_stats(guide_id, stat_date);
+
+-- Kept separately so a guide's history survives deleting a circuit
+CREATE TABLE guide_daily_stats (
+    guide_id            BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    stat_date           DATE NOT NULL,
+    confirmed_bookings  INTEGER NOT NULL DEFAULT 0,
+    revenue_mad         NUMERIC(14,2) NOT NULL DEFAULT 0,
+    seats               INTEGER NOT NULL DEFAULT 0,
+    PRIMARY KEY (guide_id, stat_date)
+);
+
+INSERT INTO circuit_daily_stats (circuit_id, stat_date, guide_id, confirmed_bookings, revenue_mad, seats)
+SELECT c.id,
+       (COALESCE(b.paid_at, b.created_at) AT TIME ZONE 'UTC')::date,
+       c.created_by,
+       COUNT(*),
+       SUM(b.amount_mad),
+       COUNT(*)
+FROM bookings b
+JOIN circuit_sessions s ON s.id = b.circuit_session_id
+JOIN circuits c ON c.id = s.circuit_id
+WHERE b.status = 'CONFIRMED'
+GROUP BY c.id, (COALESCE(b.paid_at, b.created_at) AT TIME ZONE 'UTC')::date, c.created_by;
+
+INSERT INTO guide_daily_stats (guide_id, stat_date, confirmed_bookings, revenue_mad, seats)
+SELECT guide_id, stat_date, SUM(confirmed_bookings), SUM(revenue_mad), SUM(seats)
+FROM circuit_daily_stats
+GROUP BY guide_id, stat_date;
@@ -0,0 +1,15 @@
+-- Stop order is kept as sparse sort keys instead of a dense 1..n position, so inserting or moving
+-- a stop only rewrites that stop. Positions are derived from the order when responses are built.
+ALTER TABLE circuit_stops ADD COLUMN sort_key BIGINT;
+
+UPDATE circuit_stops SET sort_key = position::BIGINT * 65536;
+
+ALTER TABLE circuit_stops ALTER COLUMN sort_key SET NOT NULL;
+
+ALTER TABLE circuit_stops DROP CONSTRAINT uq_circuit_stops_circuit_position;
+ALTER TABLE circuit_stops DROP CONSTRAINT ck_circuit_stops_position_positive;
+ALTER TABLE circuit_stops DROP COLUMN position;
+
+-- Deferred so a respace can rewrite every key of a circuit in any row order
+ALTER TABLE circuit_stops
+    ADD CONSTRAINT uq_circuit_stops_circuit_sort_key UNIQUE (circuit_id, sort_key) DEFERRABLE INITIALLY DEFERRED;
@@ -0,0 +1,4 @@
+-- Serves the per-day time-window overlap check on stop add/update
+CREATE INDEX idx_circuit_stops_day_window
+    ON circuit_stops (circuit_id, day_number, start_time, end_time)
+    WHERE start_time IS NOT NULL AND end_time IS NOT NULL;
@@ -0,0 +1,2 @@
+-- Bumped on every edit to a circuit's stops or routes; derived data is cached per revision
+ALTER TABLE circuits ADD COLUMN revision BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,3 @@
+-- Serves the guide's circuit list, newest first, without a sort step
+CREATE INDEX idx_circuits_created_by_created_at
+    ON circuits (created_by, created_at DESC, id DESC);
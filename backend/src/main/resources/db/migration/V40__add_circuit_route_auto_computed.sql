@@ -0,0 +1,2 @@
+-- Routes filled in by the server between consecutive stops; client-entered routes stay FALSE and are never overwritten
+ALTER TABLE circuit_routes ADD COLUMN auto_computed BOOLEAN NOT NULL DEFAULT FALSE;
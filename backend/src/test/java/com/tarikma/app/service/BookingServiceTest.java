@@ -0,0 +1,80 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.dto.CursorPage;
+import com.tarikma.app.dto.tour.BookingResponse;
+import com.tarikma.app.entity.Circuit;
+import com.tarikma.app.entity.City;
+import com.tarikma.app.entity.User;
+import com.tarikma.app.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BookingServiceTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Test
+    void historyWithoutLimitReturnsEveryBooking() {
+        String email = createBookings(25);
+
+        CursorPage<BookingResponse> page = bookingService.getMyBookings(email, null, null);
+
+        assertEquals(25, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void historyWithLimitFollowsTheCursorToTheEnd() {
+        String email = createBookings(12);
+
+        Set<Long> seen = new HashSet<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<BookingResponse> page = bookingService.getMyBookings(email, cursor, 5);
+            page.getItems().forEach(b -> assertTrue(seen.add(b.getId())));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(12, seen.size());
+        assertEquals(3, pages);
+    }
+
+    private String createBookings(int count) {
+        String tag = UUID.randomUUID().toString();
+        return transactionTemplate.execute(status -> {
+            TestData data = new TestData(entityManager);
+            User guide = data.user("guide-" + tag + "@example.com");
+            User traveller = data.user("traveller-" + tag + "@example.com");
+            City city = data.city(guide, "Fes");
+            Circuit circuit = data.circuit(city, guide, "Tanneries", BigDecimal.TEN);
+            for (int i = 0; i < count; i++) {
+                data.booking(data.session(circuit, i + 1, 10), traveller, "CONFIRMED");
+            }
+            return traveller.getEmail();
+        });
+    }
+}
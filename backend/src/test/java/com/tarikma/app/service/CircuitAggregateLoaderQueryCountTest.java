@@ -0,0 +1,119 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.entity.Circuit;
+import com.tarikma.app.entity.CircuitRoute;
+import com.tarikma.app.entity.CircuitStop;
+import com.tarikma.app.entity.City;
+import com.tarikma.app.entity.User;
+import com.tarikma.app.support.StatementCounter;
+import com.tarikma.app.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Guards the circuit editor and tour detail reads: the aggregate loads in two statements, and the
+ * responses built from it trigger no lazy loads however many stops and routes the circuit has.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CircuitAggregateLoaderQueryCountTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CircuitAggregateLoader circuitAggregateLoader;
+
+    @Autowired
+    private CircuitService circuitService;
+
+    @Autowired
+    private TourService tourService;
+
+    @Autowired
+    private TourCatalogService tourCatalogService;
+
+    private record Fixture(Long circuitId, String guideEmail) {
+    }
+
+    @Test
+    void aggregateLoadsInTwoStatementsWithEveryAssociationItRenders() {
+        Fixture f = createCircuit(20);
+
+        long count = StatementCounter.count(() -> transactionTemplate.executeWithoutResult(status -> {
+            CircuitAggregate aggregate = circuitAggregateLoader.load(f.circuitId()).orElseThrow();
+            aggregate.circuit().getCity().getRegion();
+            for (CircuitStop s : aggregate.stops()) {
+                s.getPlace().getName();
+            }
+            for (CircuitRoute r : aggregate.routes()) {
+                r.getFromStop().getPlace().getName();
+                r.getToStop().getPlace().getName();
+            }
+            assertEquals(20, aggregate.stops().size());
+            assertEquals(19, aggregate.routes().size());
+        }));
+
+        assertEquals(2, count);
+    }
+
+    @Test
+    void myCircuitRunsTheSameStatementsForSmallAndLargeCircuits() {
+        Fixture small = createCircuit(2);
+        Fixture large = createCircuit(25);
+
+        long smallCount = StatementCounter.count(() -> circuitService.getMyCircuit(small.circuitId(), small.guideEmail()));
+        long largeCount = StatementCounter.count(() -> circuitService.getMyCircuit(large.circuitId(), large.guideEmail()));
+
+        assertEquals(24, circuitService.getMyCircuit(large.circuitId(), large.guideEmail()).getRoutes().size());
+        assertTrue(smallCount > 0, "statement counter is not registered");
+        assertEquals(smallCount, largeCount);
+    }
+
+    @Test
+    void tourDetailRunsTheSameStatementsForSmallAndLargeCircuits() {
+        Fixture small = createCircuit(2);
+        Fixture large = createCircuit(25);
+
+        long smallCount = StatementCounter.count(() -> tourService.getTourDetail(small.circuitId(), null));
+        long largeCount = StatementCounter.count(() -> tourService.getTourDetail(large.circuitId(), null));
+
+        assertEquals(25, tourService.getTourDetail(large.circuitId(), null).getStops().size());
+        assertTrue(smallCount > 0, "statement counter is not registered");
+        assertEquals(smallCount, largeCount);
+    }
+
+    // A chain of stops joined by a route between each consecutive pair, with one upcoming session
+    private Fixture createCircuit(int stops) {
+        String tag = UUID.randomUUID().toString();
+        Fixture fixture = transactionTemplate.execute(status -> {
+            TestData data = new TestData(entityManager);
+            User guide = data.user("guide-" + tag + "@example.com");
+            City city = data.city(guide, "City " + tag);
+            Circuit circuit = data.circuit(city, guide, "Medina walk", BigDecimal.TEN);
+            CircuitStop previous = null;
+            for (int i = 0; i < stops; i++) {
+                CircuitStop stop = data.stop(circuit, data.place(city, guide, "Place " + i, 34.0 + i * 0.01, -6.8), i + 1);
+                if (previous != null) data.route(previous, stop);
+                previous = stop;
+            }
+            data.session(circuit, 1, 10);
+            return new Fixture(circuit.getId(), guide.getEmail());
+        });
+        tourCatalogService.refresh(fixture.circuitId());
+        return fixture;
+    }
+}
@@ -0,0 +1,138 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.dto.circuit.AiSuggestPlacesRequest;
+import com.tarikma.app.dto.circuit.CircuitStopResponse;
+import com.tarikma.app.entity.Circuit;
+import com.tarikma.app.entity.City;
+import com.tarikma.app.entity.CircuitStop;
+import com.tarikma.app.entity.User;
+import com.tarikma.app.exception.BadRequestException;
+import com.tarikma.app.repository.CircuitRepository;
+import com.tarikma.app.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CircuitServiceAiReorderTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CircuitService circuitService;
+
+    @Autowired
+    private CircuitRepository circuitRepository;
+
+    @MockitoBean
+    private AiService aiService;
+
+    private record Fixture(Long circuitId, String guideEmail, List<Long> stopIds) {
+    }
+
+    @Test
+    void appliesTheOrderTheAiReturns() throws Exception {
+        Fixture f = createCircuit();
+        List<Long> reversed = f.stopIds().reversed();
+        when(aiService.isConfigured()).thenReturn(true);
+        when(aiService.chatCompletion(anyString(), anyString())).thenReturn(orderJson(reversed));
+
+        List<Long> result = circuitService.reorderStopsWithAi(f.circuitId(), f.guideEmail()).getStops().stream()
+                .map(CircuitStopResponse::getId)
+                .toList();
+
+        assertEquals(reversed, result);
+    }
+
+    @Test
+    void rejectsTheOrderWhenTheCircuitChangedDuringTheAiCall() throws Exception {
+        Fixture f = createCircuit();
+        when(aiService.isConfigured()).thenReturn(true);
+        when(aiService.chatCompletion(anyString(), anyString())).thenAnswer(invocation -> {
+            // Another request edits the circuit on its own thread; it would block on a lock held across the call
+            CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(tx -> {
+                circuitRepository.findByIdForUpdate(f.circuitId()).orElseThrow();
+                circuitRepository.incrementRevision(f.circuitId());
+            })).get(5, TimeUnit.SECONDS);
+            return orderJson(f.stopIds().reversed());
+        });
+
+        BadRequestException e = assertThrows(BadRequestException.class,
+                () -> circuitService.reorderStopsWithAi(f.circuitId(), f.guideEmail()));
+
+        assertTrue(e.getMessage().contains("changed"), e.getMessage());
+        List<Long> unchanged = circuitService.getMyCircuit(f.circuitId(), f.guideEmail()).getStops().stream()
+                .map(CircuitStopResponse::getId)
+                .toList();
+        assertEquals(f.stopIds(), unchanged);
+    }
+
+    @Test
+    void suggestedPlacesFollowAStopAddedDuringTheAiCall() throws Exception {
+        Fixture f = createCircuit();
+        when(aiService.isConfigured()).thenReturn(true);
+        when(aiService.chatCompletion(anyString(), anyString())).thenAnswer(invocation -> {
+            // Another request appends a stop while the AI is answering
+            CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(tx -> {
+                Circuit circuit = circuitRepository.findByIdForUpdate(f.circuitId()).orElseThrow();
+                TestData data = new TestData(entityManager);
+                data.stop(circuit, data.place(circuit.getCity(), circuit.getCreatedBy(), "Added meanwhile", 35.3, -5.26), 5);
+            })).get(5, TimeUnit.SECONDS);
+            return """
+                {"places": [
+                  {"name": "Ras El Maa", "category": "NATURE", "latitude": 35.17, "longitude": -5.25},
+                  {"name": "Spanish Mosque", "category": "MOSQUE", "latitude": 35.17, "longitude": -5.25}
+                ]}
+                """;
+        });
+
+        List<String> names = circuitService.suggestPlacesWithAi(f.circuitId(), new AiSuggestPlacesRequest(), f.guideEmail())
+                .getStops().stream()
+                .map(CircuitStopResponse::getPlaceName)
+                .toList();
+
+        assertEquals(List.of("Place 0", "Place 1", "Place 2", "Place 3", "Added meanwhile", "Ras El Maa", "Spanish Mosque"), names);
+    }
+
+    private static String orderJson(List<Long> ids) {
+        return "{\"ordered_ids\": " + ids + ", \"explanation\": \"test\"}";
+    }
+
+    private Fixture createCircuit() {
+        String tag = UUID.randomUUID().toString();
+        return transactionTemplate.execute(status -> {
+            TestData data = new TestData(entityManager);
+            User guide = data.user("guide-" + tag + "@example.com");
+            City city = data.city(guide, "Chefchaouen");
+            Circuit circuit = data.circuit(city, guide, "Blue city", BigDecimal.TEN);
+            List<Long> stopIds = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                CircuitStop stop = data.stop(circuit, data.place(city, guide, "Place " + i, 35.17 + i * 0.01, -5.26), i + 1);
+                stopIds.add(stop.getId());
+            }
+            return new Fixture(circuit.getId(), guide.getEmail(), stopIds);
+        });
+    }
+}
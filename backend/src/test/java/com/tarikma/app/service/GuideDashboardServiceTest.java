@@ -0,0 +1,88 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.dto.guide.BookingExportFormat;
+import com.tarikma.app.entity.Circuit;
+import com.tarikma.app.entity.CircuitSession;
+import com.tarikma.app.entity.City;
+import com.tarikma.app.entity.User;
+import com.tarikma.app.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class GuideDashboardServiceTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private GuideDashboardService guideDashboardService;
+
+    @Test
+    void exportWritesEveryBookingAcrossPagesWithNoTransactionOpen() throws Exception {
+        // More than one export page, with created_at ties so the id breaks them
+        List<Long> bookingIds = createBookings(1234);
+        List<Boolean> writesInTransaction = new ArrayList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void write(byte[] b, int off, int len) {
+                writesInTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+                super.write(b, off, len);
+            }
+        };
+
+        guideDashboardService.exportGuideBookings(guideId(bookingIds.getFirst()), BookingExportFormat.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        List<Long> exported = new ArrayList<>();
+        for (int i = 1; i < lines.length; i++) {
+            exported.add(Long.parseLong(lines[i].substring(0, lines[i].indexOf(','))));
+        }
+        assertEquals(bookingIds.stream().sorted(Comparator.reverseOrder()).toList(), exported);
+        assertFalse(writesInTransaction.contains(true));
+    }
+
+    private Long guideId(Long bookingId) {
+        return transactionTemplate.execute(status -> entityManager
+                .createQuery("SELECT b.circuitSession.circuit.createdBy.id FROM Booking b WHERE b.id = :id", Long.class)
+                .setParameter("id", bookingId)
+                .getSingleResult());
+    }
+
+    private List<Long> createBookings(int count) {
+        String tag = UUID.randomUUID().toString();
+        return transactionTemplate.execute(status -> {
+            TestData data = new TestData(entityManager);
+            User guide = data.user("guide-" + tag + "@example.com");
+            User traveller = data.user("traveller-" + tag + "@example.com");
+            City city = data.city(guide, "Meknes");
+            Circuit circuit = data.circuit(city, guide, "Bab Mansour", BigDecimal.TEN);
+            CircuitSession session = data.session(circuit, 1, null);
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                ids.add(data.booking(session, traveller, "CONFIRMED").getId());
+            }
+            return ids;
+        });
+    }
+}
@@ -0,0 +1,159 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.dto.circuit.UpdateCircuitSessionRequest;
+import com.tarikma.app.entity.Circuit;
+import com.tarikma.app.entity.CircuitSession;
+import com.tarikma.app.entity.City;
+import com.tarikma.app.entity.User;
+import com.tarikma.app.exception.BadRequestException;
+import com.tarikma.app.repository.CircuitSessionRepository;
+import com.tarikma.app.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fires many seat reservations at once at a session that cannot hold them all and checks that
+ * seats_taken never goes past max_participants.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class SessionSeatConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS = 200;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CircuitSessionRepository circuitSessionRepository;
+
+    @Autowired
+    private CircuitService circuitService;
+
+    private record Fixture(Long circuitId, Long sessionId, String guideEmail) {
+    }
+
+    @Test
+    void parallelReservationsNeverOverbook() throws Exception {
+        Fixture f = createSession(10);
+        AtomicInteger reserved = new AtomicInteger();
+
+        runConcurrently(ATTEMPTS, i -> transactionTemplate.executeWithoutResult(status -> {
+            if (circuitSessionRepository.reserveSeat(f.sessionId()) == 1) {
+                // Some checkouts fail after taking the seat; their rollback must give it back
+                if (i % 7 == 0) {
+                    status.setRollbackOnly();
+                } else {
+                    reserved.incrementAndGet();
+                }
+            }
+        }));
+
+        CircuitSession session = reload(f.sessionId());
+        assertEquals(10, reserved.get());
+        assertEquals(10, session.getSeatsTaken());
+    }
+
+    @Test
+    void capacityCannotDropBelowAReservationStillInFlight() throws Exception {
+        Fixture f = createSession(5);
+        transactionTemplate.executeWithoutResult(status -> circuitSessionRepository.reserveSeat(f.sessionId()));
+
+        // A second checkout takes a seat and commits only after the guide's update has started
+        CountDownLatch seatTaken = new CountDownLatch(1);
+        ExecutorService checkout = Executors.newSingleThreadExecutor();
+        Future<?> pending = checkout.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            circuitSessionRepository.reserveSeat(f.sessionId());
+            seatTaken.countDown();
+            sleep(300);
+        }));
+        seatTaken.await();
+
+        UpdateCircuitSessionRequest req = new UpdateCircuitSessionRequest();
+        req.setMaxParticipants(1);
+        try {
+            circuitService.updateSession(f.circuitId(), f.sessionId(), req, f.guideEmail());
+        } catch (BadRequestException rejected) {
+            // Both seats are taken once the checkout commits
+        } finally {
+            pending.get();
+            checkout.shutdown();
+        }
+
+        CircuitSession session = reload(f.sessionId());
+        assertEquals(2, session.getSeatsTaken());
+        assertTrue(session.getSeatsTaken() <= session.getMaxParticipants(),
+                session.getSeatsTaken() + " seats taken for " + session.getMaxParticipants() + " places");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface Attempt {
+        void run(int index) throws Exception;
+    }
+
+    private static void runConcurrently(int attempts, Attempt attempt) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < attempts; i++) {
+                int index = i;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    attempt.run(index);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private CircuitSession reload(Long sessionId) {
+        return transactionTemplate.execute(status -> circuitSessionRepository.findById(sessionId).orElseThrow());
+    }
+
+    private Fixture createSession(int maxParticipants) {
+        String tag = UUID.randomUUID().toString();
+        return transactionTemplate.execute(status -> {
+            TestData data = new TestData(entityManager);
+            User guide = data.user("guide-" + tag + "@example.com");
+            City city = data.city(guide, "Rabat");
+            Circuit circuit = data.circuit(city, guide, "Kasbah walk", BigDecimal.TEN);
+            CircuitSession session = data.session(circuit, 3, maxParticipants);
+            return new Fixture(circuit.getId(), session.getId(), guide.getEmail());
+        });
+    }
+}
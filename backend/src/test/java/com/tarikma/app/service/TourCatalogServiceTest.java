@@ -0,0 +1,111 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.dto.admin.UpdateUserRequest;
+import com.tarikma.app.dto.city.CityNameRequest;
+import com.tarikma.app.entity.Circuit;
+import com.tarikma.app.entity.City;
+import com.tarikma.app.entity.CityName;
+import com.tarikma.app.entity.User;
+import com.tarikma.app.repository.TourCatalogRepository;
+import com.tarikma.app.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TourCatalogServiceTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TourCatalogService tourCatalogService;
+
+    @Autowired
+    private TourCatalogRepository tourCatalogRepository;
+
+    @Autowired
+    private CityService cityService;
+
+    @Autowired
+    private AdminService adminService;
+
+    @Autowired
+    private CircuitService circuitService;
+
+    @Autowired
+    private TourService tourService;
+
+    private record Fixture(Long circuitId, Long cityId, Long cityNameId, Long guideId, String guideEmail) {
+    }
+
+    @Test
+    void renamingTheCityRewritesItsTours() {
+        Fixture f = createTour();
+
+        CityNameRequest req = new CityNameRequest();
+        req.setLanguageCode("en");
+        req.setName("Tanger");
+        req.setPrimary(true);
+        cityService.updateCityName(f.cityId(), f.cityNameId(), req);
+
+        assertEquals("Tanger", tourCatalogRepository.findById(f.circuitId()).orElseThrow().getCityName());
+    }
+
+    @Test
+    void renamingTheGuideRewritesTheirTours() {
+        Fixture f = createTour();
+
+        UpdateUserRequest req = new UpdateUserRequest();
+        req.setFullName("Renamed Guide");
+        adminService.updateUser(f.guideId(), req);
+
+        assertEquals("Renamed Guide", tourCatalogRepository.findById(f.circuitId()).orElseThrow().getGuideName());
+    }
+
+    @Test
+    void deletingACircuitDropsItFromTheCachedListing() {
+        Fixture f = createTour();
+        // Warms the listing cache for the city
+        assertEquals(1, tourService.listTours(f.cityId(), null, null, null, null, null, null).getItems().size());
+
+        // The test schema has no ON DELETE CASCADE; remove what the migrations' cascades would
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.createQuery("DELETE FROM CircuitSession s WHERE s.circuit.id = :id")
+                    .setParameter("id", f.circuitId())
+                    .executeUpdate();
+            tourCatalogRepository.deleteById(f.circuitId());
+        });
+        circuitService.deleteCircuit(f.circuitId(), f.guideEmail());
+
+        assertEquals(0, tourService.listTours(f.cityId(), null, null, null, null, null, null).getItems().size());
+    }
+
+    private Fixture createTour() {
+        String tag = UUID.randomUUID().toString();
+        Fixture fixture = transactionTemplate.execute(status -> {
+            TestData data = new TestData(entityManager);
+            User guide = data.user("guide-" + tag + "@example.com");
+            City city = data.city(guide, "Tangier");
+            Circuit circuit = data.circuit(city, guide, "Medina walk", BigDecimal.TEN);
+            data.session(circuit, 3, 10);
+            CityName name = city.getNames().get(0);
+            return new Fixture(circuit.getId(), city.getId(), name.getId(), guide.getId(), guide.getEmail());
+        });
+        tourCatalogService.refresh(fixture.circuitId());
+        assertEquals("Tangier", tourCatalogRepository.findById(fixture.circuitId()).orElseThrow().getCityName());
+        return fixture;
+    }
+}
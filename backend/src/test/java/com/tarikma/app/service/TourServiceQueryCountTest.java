@@ -0,0 +1,104 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.entity.Circuit;
+import com.tarikma.app.entity.CircuitSession;
+import com.tarikma.app.entity.City;
+import com.tarikma.app.entity.Place;
+import com.tarikma.app.entity.User;
+import com.tarikma.app.support.StatementCounter;
+import com.tarikma.app.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Guards the catalog read paths against N+1 regressions: the statement count must not grow with the
+ * number of tours, stops, sessions or bookings.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class TourServiceQueryCountTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TourService tourService;
+
+    @Autowired
+    private TourCatalogService tourCatalogService;
+
+    private record Fixture(Long cityId, List<Long> circuitIds, String guestEmail) {
+    }
+
+    @Test
+    void listToursRunsTheSameStatementsForOneTourAndForMany() {
+        Fixture small = createTours(1, 1, 1);
+        Fixture large = createTours(40, 1, 1);
+
+        long smallCount = StatementCounter.count(() -> tourService.listTours(small.cityId(), null, null, null, null, null, 100));
+        long largeCount = StatementCounter.count(() -> tourService.listTours(large.cityId(), null, null, null, null, null, 100));
+
+        assertEquals(40, tourService.listTours(large.cityId(), null, null, null, null, null, 100).getItems().size());
+        assertTrue(smallCount > 0, "statement counter is not registered");
+        assertEquals(smallCount, largeCount);
+    }
+
+    @Test
+    void tourDetailRunsTheSameStatementsForSmallAndLargeTours() {
+        Fixture small = createTours(1, 1, 1);
+        Fixture large = createTours(1, 15, 12);
+        Long smallId = small.circuitIds().get(0);
+        Long largeId = large.circuitIds().get(0);
+
+        long smallCount = StatementCounter.count(() -> tourService.getTourDetail(smallId, small.guestEmail()));
+        long largeCount = StatementCounter.count(() -> tourService.getTourDetail(largeId, large.guestEmail()));
+
+        assertEquals(15, tourService.getTourDetail(largeId, null).getStops().size());
+        assertEquals(12, tourService.getTourDetail(largeId, null).getSessions().size());
+        assertTrue(smallCount > 0, "statement counter is not registered");
+        assertEquals(smallCount, largeCount);
+    }
+
+    // Every circuit gets its own stops and sessions; the guest holds a confirmed seat on each session
+    private Fixture createTours(int tours, int stopsPerTour, int sessionsPerTour) {
+        String tag = UUID.randomUUID().toString();
+        Fixture fixture = transactionTemplate.execute(status -> {
+            TestData data = new TestData(entityManager);
+            User guide = data.user("guide-" + tag + "@example.com");
+            User guest = data.user("guest-" + tag + "@example.com");
+            City city = data.city(guide, "City " + tag);
+
+            List<Long> circuitIds = new ArrayList<>();
+            for (int t = 0; t < tours; t++) {
+                Circuit circuit = data.circuit(city, guide, "Tour " + t, BigDecimal.TEN);
+                for (int s = 0; s < stopsPerTour; s++) {
+                    Place place = data.place(city, guide, "Place " + t + "-" + s, 35.7 + s * 0.01, -5.8);
+                    data.stop(circuit, place, s + 1);
+                }
+                for (int s = 0; s < sessionsPerTour; s++) {
+                    CircuitSession session = data.session(circuit, s + 1, 10);
+                    data.booking(session, guest, "CONFIRMED");
+                }
+                circuitIds.add(circuit.getId());
+            }
+            return new Fixture(city.getId(), circuitIds, guest.getEmail());
+        });
+        fixture.circuitIds().forEach(tourCatalogService::refresh);
+        return fixture;
+    }
+}
@@ -0,0 +1,104 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.dto.CursorPage;
+import com.tarikma.app.dto.tour.TourSummaryResponse;
+import com.tarikma.app.entity.Circuit;
+import com.tarikma.app.entity.City;
+import com.tarikma.app.entity.User;
+import com.tarikma.app.repository.TourCatalogRepository;
+import com.tarikma.app.support.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TourServiceTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TourService tourService;
+
+    @Autowired
+    private TourCatalogService tourCatalogService;
+
+    @Autowired
+    private TourCatalogRepository tourCatalogRepository;
+
+    @Test
+    void listToursWithoutLimitReturnsEveryTour() {
+        Long cityId = createTours(30);
+
+        CursorPage<TourSummaryResponse> page = tourService.listTours(cityId, null, null, null, null, null, null);
+
+        assertEquals(30, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void listToursWithLimitFollowsTheCursorToTheEnd() {
+        Long cityId = createTours(12);
+
+        Set<Long> seen = new HashSet<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<TourSummaryResponse> page = tourService.listTours(cityId, null, null, null, null, cursor, 5);
+            page.getItems().forEach(t -> assertTrue(seen.add(t.getId())));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(12, seen.size());
+        assertEquals(3, pages);
+    }
+
+    @Test
+    void tourStaysListedWhileItsStoredNextSessionIsStale() {
+        Long cityId = createTours(1);
+        // The first session has just started and the scheduled refresh has not caught up yet
+        transactionTemplate.executeWithoutResult(status -> tourCatalogRepository.findAll().stream()
+                .filter(t -> t.getCityId().equals(cityId))
+                .forEach(t -> t.setNextSessionAt(Instant.now().minusSeconds(60))));
+
+        assertEquals(1, tourService.listTours(cityId, null, null, null, null, null, 10).getItems().size());
+    }
+
+    private Long createTours(int count) {
+        String tag = UUID.randomUUID().toString();
+        List<Long> circuitIds = new ArrayList<>();
+        Long cityId = transactionTemplate.execute(status -> {
+            TestData data = new TestData(entityManager);
+            User guide = data.user("guide-" + tag + "@example.com");
+            City city = data.city(guide, "City " + tag);
+            for (int i = 0; i < count; i++) {
+                Circuit circuit = data.circuit(city, guide, "Tour " + i, BigDecimal.TEN);
+                data.session(circuit, i + 1, 10);
+                circuitIds.add(circuit.getId());
+            }
+            return city.getId();
+        });
+        circuitIds.forEach(tourCatalogService::refresh);
+        return cityId;
+    }
+}
@@ -0,0 +1,39 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.repository.PlaceRepository;
+import com.tarikma.app.repository.TransportOptionRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TransitGraphServiceTest {
+
+    private final PlaceRepository placeRepository = mock(PlaceRepository.class);
+    private final TransportOptionRepository transportOptionRepository = mock(TransportOptionRepository.class);
+    private final TransitGraphService service = new TransitGraphService(placeRepository, transportOptionRepository);
+
+    @Test
+    void cachesTheGraphBetweenQueries() {
+        when(placeRepository.findByCityId(1L)).thenReturn(List.of());
+
+        assertSame(service.forCity(1L), service.forCity(1L));
+    }
+
+    @Test
+    void graphBuiltAcrossAnEditIsNotKept() {
+        // The edit commits after the places were read but before the graph is published
+        when(placeRepository.findByCityId(1L)).thenAnswer(inv -> {
+            service.cityChanged(1L);
+            return List.of();
+        }).thenReturn(List.of());
+
+        TransitGraph stale = service.forCity(1L);
+
+        assertNotSame(stale, service.forCity(1L));
+    }
+}
@@ -0,0 +1,105 @@
+package com.tarikma.app.service;
+
+import com.tarikma.app.entity.Place;
+import com.tarikma.app.entity.TransportOption;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class TransitGraphTest {
+
+    private static final LocalTime EIGHT = LocalTime.of(8, 0);
+
+    // Far enough apart that no walking edges join them
+    private final Place a = place(1, 31.0);
+    private final Place b = place(2, 31.2);
+    private final Place c = place(3, 31.4);
+    private final Place x = place(4, 31.6);
+
+    private final List<TransportOption> options = new ArrayList<>();
+    private long nextOptionId = 1;
+
+    @Test
+    void cheapestTakesTheDearerLegWhenTheCheapOneMissesTheLastService() {
+        option(a, b, "BUS", 5, 120, null, null);
+        option(a, b, "TAXI", 50, 20, null, null);
+        option(b, c, "BUS", 5, 30, LocalTime.of(8, 0), LocalTime.of(9, 0));
+
+        TransitGraph.Journey j = graph().route(1, 3, EIGHT, TransitGraph.Objective.CHEAPEST);
+
+        assertNotNull(j);
+        assertEquals(55, j.priceMad(), 1e-9);
+        assertEquals(List.of("TAXI", "BUS"), j.legs().stream().map(TransitGraph.Leg::mode).toList());
+        assertEquals(8 * 60 + 50, j.arriveMinute());
+    }
+
+    @Test
+    void fewestTransfersChangesWhenTheDirectRideArrivesTooLate() {
+        option(a, b, "BUS", 5, 120, null, null);
+        option(a, x, "TAXI", 20, 10, null, null);
+        option(x, b, "TAXI", 20, 10, null, null);
+        option(b, c, "BUS", 5, 30, LocalTime.of(8, 0), LocalTime.of(9, 0));
+
+        TransitGraph.Journey j = graph().route(1, 3, EIGHT, TransitGraph.Objective.FEWEST_TRANSFERS);
+
+        assertNotNull(j);
+        assertEquals(2, j.transfers());
+        assertEquals(8 * 60 + 50, j.arriveMinute());
+    }
+
+    @Test
+    void cheapestPrefersTheEarlierArrivalOnEqualFares() {
+        option(a, b, "BUS", 5, 120, null, null);
+        option(a, b, "TRAM", 5, 40, null, null);
+
+        TransitGraph.Journey j = graph().route(1, 2, EIGHT, TransitGraph.Objective.CHEAPEST);
+
+        assertEquals("TRAM", j.legs().getFirst().mode());
+        assertEquals(8 * 60 + 40, j.arriveMinute());
+    }
+
+    @Test
+    void fastestWaitsForTheFirstDeparture() {
+        option(a, b, "BUS", 5, 30, LocalTime.of(9, 0), LocalTime.of(18, 0));
+        option(a, b, "FERRY", 5, 200, null, null);
+
+        TransitGraph.Journey j = graph().route(1, 2, EIGHT, TransitGraph.Objective.FASTEST);
+
+        assertEquals(9 * 60, j.legs().getFirst().departMinute());
+        assertEquals(9 * 60 + 30, j.arriveMinute());
+    }
+
+    private TransitGraph graph() {
+        return TransitGraph.build(List.of(a, b, c, x), options);
+    }
+
+    private void option(Place from, Place to, String mode, double priceMad, int minutes,
+                        LocalTime serviceStart, LocalTime serviceEnd) {
+        TransportOption o = new TransportOption();
+        ReflectionTestUtils.setField(o, "id", nextOptionId++);
+        o.setFromPlace(from);
+        o.setToPlace(to);
+        o.setMode(mode);
+        o.setPricingType("FIXED");
+        o.setPriceMad(priceMad);
+        o.setDurationMinutes(minutes);
+        o.setServiceStartTime(serviceStart);
+        o.setServiceEndTime(serviceEnd);
+        options.add(o);
+    }
+
+    private static Place place(long id, double latitude) {
+        Place p = new Place();
+        ReflectionTestUtils.setField(p, "id", id);
+        p.setName("Place " + id);
+        p.setLatitude(latitude);
+        p.setLongitude(-7.0);
+        return p;
+    }
+}
@@ -0,0 +1,24 @@
+package com.tarikma.app.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the calling thread. Registered through the test
+ * profile; per-thread so scheduled jobs running alongside a test do not skew its count.
+ */
+public class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    public static long count(Runnable action) {
+        long before = COUNT.get()[0];
+        action.run();
+        return COUNT.get()[0] - before;
+    }
+}
@@ -0,0 +1,113 @@
+package com.tarikma.app.support;
+
+import com.tarikma.app.entity.Booking;
+import com.tarikma.app.entity.Circuit;
+import com.tarikma.app.entity.CircuitRoute;
+import com.tarikma.app.entity.CircuitSession;
+import com.tarikma.app.entity.CircuitStop;
+import com.tarikma.app.entity.City;
+import com.tarikma.app.entity.CityName;
+import com.tarikma.app.entity.Place;
+import com.tarikma.app.entity.User;
+import jakarta.persistence.EntityManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Persists minimal entity graphs for tests. Call it inside a transaction; each method returns the
+ * managed entity.
+ */
+public class TestData {
+
+    private final EntityManager em;
+
+    public TestData(EntityManager em) {
+        this.em = em;
+    }
+
+    public User user(String email) {
+        User u = new User("Name " + email, email, "x");
+        em.persist(u);
+        return u;
+    }
+
+    public City city(User createdBy, String name) {
+        City c = new City();
+        c.setRegion("Region");
+        c.setLatitude(35.78);
+        c.setLongitude(-5.81);
+        c.setCreatedBy(createdBy);
+        em.persist(c);
+
+        CityName n = new CityName();
+        n.setCity(c);
+        n.setLanguageCode("en");
+        n.setName(name);
+        n.setPrimary(true);
+        em.persist(n);
+        c.getNames().add(n);
+        return c;
+    }
+
+    public Place place(City city, User createdBy, String name, double lat, double lng) {
+        Place p = new Place();
+        p.setCity(city);
+        p.setName(name);
+        p.setCategory("MUSEUM");
+        p.setLatitude(lat);
+        p.setLongitude(lng);
+        p.setCreatedBy(createdBy);
+        em.persist(p);
+        return p;
+    }
+
+    public Circuit circuit(City city, User createdBy, String name, BigDecimal priceMad) {
+        Circuit c = new Circuit();
+        c.setCity(city);
+        c.setCreatedBy(createdBy);
+        c.setName(name);
+        c.setPriceMad(priceMad);
+        em.persist(c);
+        return c;
+    }
+
+    public CircuitStop stop(Circuit circuit, Place place, int position) {
+        CircuitStop s = new CircuitStop();
+        s.setCircuit(circuit);
+        s.setPlace(place);
+        s.setSortKey(position * 65536L);
+        em.persist(s);
+        return s;
+    }
+
+    public CircuitRoute route(CircuitStop from, CircuitStop to) {
+        CircuitRoute r = new CircuitRoute();
+        r.setCircuit(from.getCircuit());
+        r.setFromStop(from);
+        r.setToStop(to);
+        r.setTransportMode("WALK");
+        em.persist(r);
+        return r;
+    }
+
+    public CircuitSession session(Circuit circuit, int daysAhead, Integer maxParticipants) {
+        CircuitSession s = new CircuitSession();
+        s.setCircuit(circuit);
+        s.setStartDateTime(Instant.now().plus(daysAhead, ChronoUnit.DAYS));
+        s.setMaxParticipants(maxParticipants);
+        em.persist(s);
+        return s;
+    }
+
+    public Booking booking(CircuitSession session, User user, String status) {
+        Booking b = new Booking();
+        b.setCircuitSession(session);
+        b.setUser(user);
+        b.setStatus(status);
+        b.setAmountMad(BigDecimal.TEN);
+        em.persist(b);
+        return b;
+    }
+}
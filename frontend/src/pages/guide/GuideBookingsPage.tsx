@@ -8,6 +8,7 @@ const STATUS_STYLES: Record<string, string> = {
   CONFIRMED: 'bg-green-100 text-green-700',
   PENDING: 'bg-yellow-100 text-yellow-700',
   CANCELLED: 'bg-red-100 text-red-700',
+  EXPIRED: 'bg-gray-100 text-gray-600',
 }
 
 function formatDate(iso: string) {